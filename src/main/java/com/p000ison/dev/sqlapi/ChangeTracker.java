@@ -0,0 +1,199 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 02.01.13 18:40
+ */
+
+package com.p000ison.dev.sqlapi;
+
+import com.p000ison.dev.sqlapi.exception.QueryException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the values of the entries as they are stored in the database, so only the columns which changed since then
+ * need to be written. The columns are represented by a bitmask, the bit n stands for the column at the index n of
+ * {@link RegisteredTable#getRegisteredColumns()}.
+ * <p/>
+ * The snapshots belong to the loaded objects and are only weakly referenced by them, so the snapshot of a object which
+ * is not used anymore gets collected with it. Two objects of the same entry have their own snapshots.
+ * <p/>
+ * Objects which were loaded with only some columns have a partial snapshot. The columns which were not loaded are never
+ * written by updates.
+ */
+final class ChangeTracker {
+    /**
+     * The bitmask which stands for all columns
+     */
+    static final long ALL_COLUMNS = -1L;
+    /**
+     * The maximum amount of columns we can track with a bitmask
+     */
+    static final int MAX_COLUMNS = 64;
+    /**
+     * Stands for a column which was not loaded in a snapshot
+     */
+    private static final Object UNLOADED = new Object();
+
+    private final List<Column> columns;
+    private final int idIndex;
+    private final WeakIdentityMap<TableObject, Object[]> snapshots = new WeakIdentityMap<TableObject, Object[]>();
+
+    ChangeTracker(List<Column> columns) {
+        this.columns = columns;
+
+        int idIndex = -1;
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).isID()) {
+                idIndex = i;
+                break;
+            }
+        }
+        this.idIndex = idIndex;
+    }
+
+    /**
+     * Remembers the values of a object
+     *
+     * @param tableObject The object
+     */
+    void snapshot(TableObject tableObject) {
+        //the columns which were not loaded stay unloaded
+        Object[] previous = snapshots.get(tableObject);
+
+        Object[] snapshot = new Object[columns.size()];
+        for (int i = 0; i < snapshot.length; i++) {
+            if (previous != null && previous[i] == UNLOADED) {
+                snapshot[i] = UNLOADED;
+            } else {
+                snapshot[i] = toComparable(columns.get(i).getValue(tableObject));
+            }
+        }
+
+        snapshots.put(tableObject, snapshot);
+    }
+
+    /**
+     * Remembers the values which were read from the database
+     *
+     * @param tableObject The object which got the values
+     * @param values      The values in the order of the columns
+     * @param unloaded    The indexes of the columns which were not loaded or null if all were loaded
+     */
+    void snapshot(TableObject tableObject, Object[] values, int[] unloaded) {
+        Object[] snapshot = new Object[values.length];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = toComparable(values[i]);
+        }
+        if (unloaded != null) {
+            for (int index : unloaded) {
+                snapshot[index] = UNLOADED;
+            }
+        }
+
+        snapshots.put(tableObject, snapshot);
+    }
+
+    boolean hasSnapshot(TableObject tableObject) {
+        return snapshots.containsKey(tableObject);
+    }
+
+    /**
+     * Compares the object with its snapshot
+     *
+     * @param tableObject The object
+     * @return A bitmask of the changed columns, 0 if nothing changed or {@link #ALL_COLUMNS} if there is no snapshot
+     */
+    long getChangedColumns(TableObject tableObject) {
+        Object[] snapshot = snapshots.get(tableObject);
+        if (snapshot == null) {
+            return ALL_COLUMNS;
+        }
+
+        long changed = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            if (i == idIndex || snapshot[i] == UNLOADED) {
+                continue;
+            }
+
+            Object value = toComparable(columns.get(i).getValue(tableObject));
+            if (!equals(snapshot[i], value)) {
+                changed |= 1L << i;
+            }
+        }
+
+        return changed;
+    }
+
+    void forget(TableObject tableObject) {
+        snapshots.remove(tableObject);
+    }
+
+    void clear() {
+        snapshots.clear();
+    }
+
+    private static boolean equals(Object snapshot, Object value) {
+        if (snapshot == null || value == null) {
+            return snapshot == value;
+        }
+
+        if (snapshot instanceof byte[] && value instanceof byte[]) {
+            return Arrays.equals((byte[]) snapshot, (byte[]) value);
+        }
+
+        return snapshot.equals(value);
+    }
+
+    /**
+     * Converts a value into something we can keep and compare later. Mutable values are copied.
+     *
+     * @param value The value
+     * @return A immutable representation of the value
+     */
+    private static Object toComparable(Object value) {
+        if (value == null || value instanceof String || value instanceof Number && !(value instanceof AtomicInteger || value instanceof AtomicLong)
+                || value instanceof Boolean || value instanceof Character) {
+            return value;
+        } else if (value instanceof AtomicInteger) {
+            return ((AtomicInteger) value).get();
+        } else if (value instanceof AtomicLong) {
+            return ((AtomicLong) value).get();
+        } else if (value instanceof AtomicBoolean) {
+            return ((AtomicBoolean) value).get();
+        } else if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+
+        try {
+            ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
+            ObjectOutputStream outputStream = new ObjectOutputStream(byteBuffer);
+            outputStream.writeObject(value);
+            outputStream.close();
+            return byteBuffer.toByteArray();
+        } catch (IOException e) {
+            throw new QueryException(e);
+        }
+    }
+}
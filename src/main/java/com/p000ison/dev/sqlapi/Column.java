@@ -19,15 +19,40 @@
 
 package com.p000ison.dev.sqlapi;
 
+import com.p000ison.dev.sqlapi.codec.ColumnCodec;
+import com.p000ison.dev.sqlapi.exception.TableBuildingException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * This class represents a column. Known implementations are {@link FieldColumn} (Used to store {@link com.p000ison.dev.sqlapi.annotation.DatabaseColumn}s)
  * and {@link MethodColumn} (Used to store {@link com.p000ison.dev.sqlapi.annotation.DatabaseColumnSetter}s.
  */
 public abstract class Column {
 
+    /**
+     * The shared instances of the codecs
+     */
+    private static final Map<Class<? extends ColumnCodec>, ColumnCodec> CODECS = new ConcurrentHashMap<Class<? extends ColumnCodec>, ColumnCodec>();
+
+    private ColumnType columnType;
+
     protected Column() {
     }
 
+    /**
+     * Gets the kind of the type of this column. This is determined once.
+     *
+     * @return The kind of the type
+     */
+    public ColumnType getColumnType() {
+        if (columnType == null) {
+            columnType = ColumnType.of(getType());
+        }
+        return columnType;
+    }
+
     /**
      * Gets the class of the java object which represents this column
      *
@@ -100,13 +125,123 @@ public abstract class Column {
      */
     public abstract Object getValue(TableObject tableObject);
 
+    /**
+     * Gets the value of a int column without boxing it, if the implementation supports this.
+     *
+     * @param tableObject The table object
+     * @return The value
+     */
+    public int getInt(TableObject tableObject) {
+        return ((Number) getValue(tableObject)).intValue();
+    }
+
+    /**
+     * Gets the value of a long column without boxing it, if the implementation supports this.
+     *
+     * @param tableObject The table object
+     * @return The value
+     */
+    public long getLong(TableObject tableObject) {
+        return ((Number) getValue(tableObject)).longValue();
+    }
+
+    /**
+     * Gets the value of a double column without boxing it, if the implementation supports this.
+     *
+     * @param tableObject The table object
+     * @return The value
+     */
+    public double getDouble(TableObject tableObject) {
+        return ((Number) getValue(tableObject)).doubleValue();
+    }
+
+    /**
+     * Sets the value of a int column without boxing it, if the implementation supports this.
+     *
+     * @param tableObject The table object to modify
+     * @param value       The value
+     */
+    public void setInt(TableObject tableObject, int value) {
+        setValue(tableObject, value);
+    }
+
+    /**
+     * Sets the value of a long column without boxing it, if the implementation supports this.
+     *
+     * @param tableObject The table object to modify
+     * @param value       The value
+     */
+    public void setLong(TableObject tableObject, long value) {
+        setValue(tableObject, value);
+    }
+
+    /**
+     * Sets the value of a double column without boxing it, if the implementation supports this.
+     *
+     * @param tableObject The table object to modify
+     * @param value       The value
+     */
+    public void setDouble(TableObject tableObject, double value) {
+        setValue(tableObject, value);
+    }
+
     /**
      * Checks if the type is serializable so we can store it in a blob
      *
      * @return Weather this type is serializable
      */
     public boolean isSerializable() {
-        return RegisteredTable.isSerializable(getType());
+        return getColumnType() == ColumnType.SERIALIZABLE;
+    }
+
+    /**
+     * Gets the codec which converts the value of this column to bytes if it is Serializable
+     *
+     * @return The codec
+     */
+    public abstract ColumnCodec getCodec();
+
+    /**
+     * Whether the encoded value of this column is compressed if it is large
+     *
+     * @return Whether large values are compressed
+     */
+    public abstract boolean isCompressing();
+
+    /**
+     * Whether this column holds the time or version of the last modification of a entry
+     *
+     * @return Whether this is the modification column
+     */
+    public abstract boolean isModification();
+
+    /**
+     * Whether this column is a counter which is only written by adding deltas
+     *
+     * @return Whether this is a counter column
+     */
+    public abstract boolean isCounter();
+
+    /**
+     * Gets the shared instance of a codec
+     *
+     * @param codecClass The class of the codec
+     * @return The codec
+     * @throws TableBuildingException If the codec can not be created
+     */
+    protected static ColumnCodec getCodec(Class<? extends ColumnCodec> codecClass) {
+        ColumnCodec codec = CODECS.get(codecClass);
+        if (codec == null) {
+            try {
+                codec = codecClass.newInstance();
+            } catch (InstantiationException e) {
+                throw new TableBuildingException("Failed to create the codec %s!", codecClass.getName());
+            } catch (IllegalAccessException e) {
+                throw new TableBuildingException("Failed to create the codec %s!", codecClass.getName());
+            }
+            CODECS.put(codecClass, codec);
+        }
+        return codec;
     }
 
     public abstract boolean isID();
@@ -0,0 +1,115 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 05.01.13 13:10
+ */
+
+package com.p000ison.dev.sqlapi;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents the kind of java type of a column. It is determined once per column, so reading and writing values only
+ * needs to switch over this instead of comparing the class of the column every time.
+ */
+public enum ColumnType {
+    PRIMITIVE_BOOLEAN,
+    BOOLEAN,
+    ATOMIC_BOOLEAN,
+    PRIMITIVE_BYTE,
+    BYTE,
+    PRIMITIVE_SHORT,
+    SHORT,
+    PRIMITIVE_INT,
+    INTEGER,
+    ATOMIC_INTEGER,
+    PRIMITIVE_LONG,
+    LONG,
+    ATOMIC_LONG,
+    PRIMITIVE_FLOAT,
+    FLOAT,
+    PRIMITIVE_DOUBLE,
+    DOUBLE,
+    PRIMITIVE_CHAR,
+    CHARACTER,
+    STRING,
+    DATE,
+    TIMESTAMP,
+    SERIALIZABLE,
+    UNSUPPORTED;
+
+    /**
+     * Gets the kind of a java type
+     *
+     * @param type The type
+     * @return The kind or {@link #UNSUPPORTED}
+     */
+    public static ColumnType of(Class<?> type) {
+        if (type == boolean.class) {
+            return PRIMITIVE_BOOLEAN;
+        } else if (type == Boolean.class) {
+            return BOOLEAN;
+        } else if (type == AtomicBoolean.class) {
+            return ATOMIC_BOOLEAN;
+        } else if (type == byte.class) {
+            return PRIMITIVE_BYTE;
+        } else if (type == Byte.class) {
+            return BYTE;
+        } else if (type == short.class) {
+            return PRIMITIVE_SHORT;
+        } else if (type == Short.class) {
+            return SHORT;
+        } else if (type == int.class) {
+            return PRIMITIVE_INT;
+        } else if (type == Integer.class) {
+            return INTEGER;
+        } else if (type == AtomicInteger.class) {
+            return ATOMIC_INTEGER;
+        } else if (type == long.class) {
+            return PRIMITIVE_LONG;
+        } else if (type == Long.class) {
+            return LONG;
+        } else if (type == AtomicLong.class) {
+            return ATOMIC_LONG;
+        } else if (type == float.class) {
+            return PRIMITIVE_FLOAT;
+        } else if (type == Float.class) {
+            return FLOAT;
+        } else if (type == double.class) {
+            return PRIMITIVE_DOUBLE;
+        } else if (type == Double.class) {
+            return DOUBLE;
+        } else if (type == char.class) {
+            return PRIMITIVE_CHAR;
+        } else if (type == Character.class) {
+            return CHARACTER;
+        } else if (type == String.class) {
+            return STRING;
+        } else if (type == Date.class) {
+            return DATE;
+        } else if (type == Timestamp.class) {
+            return TIMESTAMP;
+        } else if (RegisteredTable.isSerializable(type)) {
+            return SERIALIZABLE;
+        }
+
+        return UNSUPPORTED;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 13.01.13 17:52
+ */
+
+package com.p000ison.dev.sqlapi;
+
+/**
+ * Represents the options of {@link Database#copy(Class, Database, CopyOptions)}
+ */
+public final class CopyOptions {
+    /**
+     * The default amount of entries which are written in one transaction
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int fetchSize = DEFAULT_BATCH_SIZE;
+    private long startAfter;
+    private CopyProgress progress;
+
+    /**
+     * Sets the amount of entries which are written in one transaction
+     *
+     * @param batchSize The amount of entries
+     * @return This options
+     */
+    public CopyOptions setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be greater than 0!");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets how many rows the driver of the source should fetch at once, see
+     * {@link com.p000ison.dev.sqlapi.query.PreparedSelectQuery#setFetchSize(int)}. MySQL ignores positive fetch sizes,
+     * so it streams the rows one by one instead. 0 reads the whole table into memory there.
+     *
+     * @param fetchSize The amount of rows
+     * @return This options
+     */
+    public CopyOptions setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * Only copies the entries whose id is greater than this one. Used to resume a copy.
+     *
+     * @param startAfter The id of the last entry which was already copied
+     * @return This options
+     */
+    public CopyOptions setStartAfter(long startAfter) {
+        this.startAfter = startAfter;
+        return this;
+    }
+
+    public CopyOptions setProgress(CopyProgress progress) {
+        this.progress = progress;
+        return this;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public long getStartAfter() {
+        return startAfter;
+    }
+
+    public CopyProgress getProgress() {
+        return progress;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 13.01.13 17:40
+ */
+
+package com.p000ison.dev.sqlapi;
+
+/**
+ * Gets notified about the progress of {@link Database#copy(Class, Database, CopyOptions)}
+ */
+public interface CopyProgress {
+
+    /**
+     * Called after a batch was committed to the destination. The id can be stored as checkpoint and passed to
+     * {@link CopyOptions#setStartAfter(long)} to resume the copy after a crash.
+     *
+     * @param table  The table
+     * @param copied The amount of entries which were copied so far
+     * @param lastId The id of the last copied entry
+     */
+    void copied(Class<? extends TableObject> table, long copied, long lastId);
+}
@@ -0,0 +1,135 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 14.01.13 10:15
+ */
+
+package com.p000ison.dev.sqlapi;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Accumulates the deltas of the counter columns until they get written. There is one delta per table, column and entry,
+ * so many increments of the same counter result in one write.
+ */
+final class CounterBuffer {
+    private final ConcurrentMap<Key, Long> deltas = new ConcurrentHashMap<Key, Long>();
+
+    /**
+     * Adds a delta to the pending delta of a counter
+     *
+     * @param table  The table
+     * @param column The counter column
+     * @param id     The id of the entry
+     * @param delta  The delta
+     */
+    void add(RegisteredTable table, Column column, long id, long delta) {
+        Key key = new Key(table, column, id);
+
+        while (true) {
+            Long pending = deltas.get(key);
+            if (pending == null) {
+                if (deltas.putIfAbsent(key, delta) == null) {
+                    return;
+                }
+            } else if (deltas.replace(key, pending, pending + delta)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes all pending deltas. Deltas which are added meanwhile stay pending.
+     *
+     * @return The deltas mapped by their table, column and the id of the entry
+     */
+    Map<RegisteredTable, Map<Column, Map<Long, Long>>> drain() {
+        Map<RegisteredTable, Map<Column, Map<Long, Long>>> drained = new LinkedHashMap<RegisteredTable, Map<Column, Map<Long, Long>>>();
+
+        for (Key key : deltas.keySet()) {
+            Long delta = deltas.remove(key);
+            if (delta == null || delta == 0) {
+                continue;
+            }
+
+            Map<Column, Map<Long, Long>> columns = drained.get(key.table);
+            if (columns == null) {
+                columns = new LinkedHashMap<Column, Map<Long, Long>>();
+                drained.put(key.table, columns);
+            }
+
+            Map<Long, Long> entries = columns.get(key.column);
+            if (entries == null) {
+                entries = new HashMap<Long, Long>();
+                columns.put(key.column, entries);
+            }
+            entries.put(key.id, delta);
+        }
+
+        return drained;
+    }
+
+    /**
+     * Adds drained deltas again, for example if writing them failed
+     *
+     * @param table   The table
+     * @param columns The deltas of the table
+     */
+    void restore(RegisteredTable table, Map<Column, Map<Long, Long>> columns) {
+        for (Map.Entry<Column, Map<Long, Long>> column : columns.entrySet()) {
+            for (Map.Entry<Long, Long> entry : column.getValue().entrySet()) {
+                add(table, column.getKey(), entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return deltas.isEmpty();
+    }
+
+    private static final class Key {
+        private final RegisteredTable table;
+        private final Column column;
+        private final long id;
+
+        private Key(RegisteredTable table, Column column, long id) {
+            this.table = table;
+            this.column = column;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key that = (Key) o;
+
+            return id == that.id && column == that.column && table.equals(that.table);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = table.hashCode();
+            result = 31 * result + System.identityHashCode(column);
+            return 31 * result + (int) (id ^ (id >>> 32));
+        }
+    }
+}
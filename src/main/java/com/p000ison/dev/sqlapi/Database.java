@@ -23,13 +23,35 @@ import com.p000ison.dev.sqlapi.annotation.DatabaseTable;
 import com.p000ison.dev.sqlapi.exception.DatabaseConnectionException;
 import com.p000ison.dev.sqlapi.exception.QueryException;
 import com.p000ison.dev.sqlapi.exception.RegistrationException;
+import com.p000ison.dev.sqlapi.query.CompiledQuery;
+import com.p000ison.dev.sqlapi.query.DeleteQuery;
 import com.p000ison.dev.sqlapi.query.PreparedQuery;
 import com.p000ison.dev.sqlapi.query.PreparedSelectQuery;
+import com.p000ison.dev.sqlapi.query.ResultIterator;
+import com.p000ison.dev.sqlapi.query.RowView;
 import com.p000ison.dev.sqlapi.query.SelectQuery;
+import com.p000ison.dev.sqlapi.query.UpdateQuery;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
@@ -53,13 +75,35 @@ public abstract class Database {
      * A map of registered tables (classes) and a list of columns
      */
     private Set<RegisteredTable> registeredTables = new HashSet<RegisteredTable>();
+    /**
+     * The hooks which run before the connection gets closed
+     */
+    private final List<Runnable> closeHooks = new CopyOnWriteArrayList<Runnable>();
+    /**
+     * The sync states of the synced tables for every destination
+     */
+    private final Map<Database, Map<RegisteredTable, SyncState>> syncStates = new ConcurrentHashMap<Database, Map<RegisteredTable, SyncState>>();
+    /**
+     * The deltas of the counter columns which were not written yet
+     */
+    private final CounterBuffer counters = new CounterBuffer();
+    /**
+     * The tables which were written in the transaction of the current thread
+     */
+    private final ThreadLocal<Set<RegisteredTable>> transactionWrites = new ThreadLocal<Set<RegisteredTable>>();
 
     public static final int UNSUPPORTED_TYPE = Integer.MAX_VALUE;
+    /**
+     * The maximum amount of values of a IN query, SQLite allows 999 parameters by default
+     */
+    public static final int MAX_IN_SIZE = 512;
+    /**
+     * The initial capacity of the buffer of a copy
+     */
+    private static final int DEFAULT_COPY_BUFFER = 1024;
 
     private static Logger logger;
 
-    private static final Lock accessLock = new ReentrantLock();
-
     static void log(Level level, String msg, Object... args) {
         if (logger == null) {
             return;
@@ -110,14 +154,149 @@ public abstract class Database {
      * @throws QueryException
      */
     public final void close() throws QueryException {
-        for (RegisteredTable table : registeredTables) {
-            table.close();
+        for (Runnable hook : closeHooks) {
+            hook.run();
+        }
+        closeHooks.clear();
+
+        try {
+            flushCounters();
+        } finally {
+            for (RegisteredTable table : registeredTables) {
+                table.close();
+            }
+            closeDatabaseConnection();
         }
-        closeDatabaseConnection();
     }
 
     protected abstract void closeDatabaseConnection() throws QueryException;
 
+    /**
+     * Adds a hook which runs when the database gets closed, before the connection is closed. This can be used to write
+     * pending entries.
+     *
+     * @param hook The hook
+     */
+    public void addCloseHook(Runnable hook) {
+        closeHooks.add(hook);
+    }
+
+    public void removeCloseHook(Runnable hook) {
+        closeHooks.remove(hook);
+    }
+
+    /**
+     * Starts a transaction for the current thread. Everything this thread does with the database is committed at once
+     * by {@link #commit()} or undone by {@link #rollback()}. Transactions can be nested, only the outermost one commits.
+     *
+     * @throws QueryException If the transaction could not be started
+     */
+    public abstract void beginTransaction();
+
+    /**
+     * Commits the transaction of the current thread. If it was nested the changes are committed with the outermost
+     * transaction.
+     *
+     * @throws QueryException If there is no transaction, the commit failed or a nested transaction was rolled back
+     */
+    public abstract void commit();
+
+    /**
+     * Rolls back the transaction of the current thread. If it was nested the outermost transaction gets rolled back
+     * instead of committed. The ids which new objects got in the transaction are not reset.
+     *
+     * @throws QueryException If there is no transaction or the rollback failed
+     */
+    public abstract void rollback();
+
+    /**
+     * Checks whether the current thread is in a transaction
+     *
+     * @return Whether there is a transaction
+     */
+    public abstract boolean isInTransaction();
+
+    /**
+     * Runs work in a transaction. The transaction gets committed if the work returns normally, otherwise it is rolled
+     * back.
+     *
+     * @param transaction The work to run
+     * @param <T>         The type of the result
+     * @return The result of the work
+     */
+    public <T> T inTransaction(Transaction<T> transaction) {
+        beginTransaction();
+
+        T result;
+        try {
+            result = transaction.execute(this);
+        } catch (RuntimeException e) {
+            rollback();
+            throw e;
+        } catch (Error e) {
+            rollback();
+            throw e;
+        }
+
+        commit();
+        return result;
+    }
+
+    /**
+     * Reserves a connection for the current thread until {@link #unpinConnection()} is called. This is done before a
+     * table lock is taken, so a thread never waits for a connection while holding a lock.
+     */
+    protected void pinConnection() {
+    }
+
+    protected void unpinConnection() {
+    }
+
+    /**
+     * Counts a write to a table. In a transaction the table is counted again when the transaction ends, because readers
+     * on other connections may have cached the old rows meanwhile.
+     *
+     * @param table The table
+     */
+    private void markModified(RegisteredTable table) {
+        table.markModified();
+
+        if (isInTransaction()) {
+            Set<RegisteredTable> tables = transactionWrites.get();
+            if (tables == null) {
+                tables = new HashSet<RegisteredTable>();
+                transactionWrites.set(tables);
+            }
+            tables.add(table);
+        }
+    }
+
+    /**
+     * Counts the writes of the transaction of the current thread again. This must be called after the outermost
+     * transaction was committed or rolled back.
+     */
+    protected void endTransactionWrites() {
+        Set<RegisteredTable> tables = transactionWrites.get();
+        if (tables == null) {
+            return;
+        }
+
+        transactionWrites.remove();
+        for (RegisteredTable table : tables) {
+            table.markModified();
+        }
+    }
+
+    /**
+     * Forgets the snapshots and cached entries of all tables, because the entries in the database might not match them
+     * anymore
+     */
+    protected void invalidateTables() {
+        for (RegisteredTable table : registeredTables) {
+            table.invalidate();
+        }
+    }
+
     /**
      * Creates a new instance of a TableBuilder. This is used to build the queries to create/modify a table.
      *
@@ -209,10 +388,154 @@ public abstract class Database {
         return new DefaultSelectQuery<T>(this);
     }
 
+    /**
+     * Constructs a new DeleteQuery which deletes the entries matching its where part with one statement
+     *
+     * @param <T> a TableObject type
+     * @return The DeleteQuery
+     */
+    public <T extends TableObject> DeleteQuery<T> delete() {
+        return new DefaultDeleteQuery<T>(this);
+    }
+
+    /**
+     * Constructs a new UpdateQuery which sets columns of the entries matching its where part with one statement
+     *
+     * @param table The class of the table
+     * @param <T>   The type of the table
+     * @return The UpdateQuery
+     * @throws RegistrationException If the table is not registered
+     */
+    public <T extends TableObject> UpdateQuery<T> update(Class<T> table) {
+        return new DefaultUpdateQuery<T>(this, getRegisteredTable(table));
+    }
+
+    /**
+     * Executes a statement which changes many entries of a table at once. The cache of the table is cleared afterwards,
+     * because it might not match the entries anymore. After updates the snapshots are kept, so objects loaded before
+     * only write the columns which were changed on them and do not revert the bulk change when they are saved. After
+     * deletes the snapshots are cleared, so saving a deleted object inserts it again.
+     *
+     * @param table     The table
+     * @param statement The statement with all values set
+     * @param delete    Whether the statement deletes entries
+     * @return The amount of changed entries
+     */
+    int executeBulkUpdate(RegisteredTable table, PreparedQuery statement, boolean delete) {
+        pinConnection();
+        Lock lock = table.getLock();
+        lock.lock();
+        try {
+            return statement.executeUpdate();
+        } finally {
+            if (delete) {
+                table.clearSnapshots();
+            }
+            table.clearCache();
+            markModified(table);
+            lock.unlock();
+            unpinConnection();
+        }
+    }
+
+    /**
+     * Gets the entry with this id. If the table has a cache (see {@link DatabaseTable#cacheSize()}) the entry is taken
+     * from it if possible, so the same object may be returned every time.
+     *
+     * @param table The class of the table
+     * @param id    The id of the entry
+     * @param <T>   The type of the table
+     * @return The entry or null if there is no entry with this id
+     * @throws RegistrationException If the table is not registered
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends TableObject> T get(Class<T> table, long id) {
+        RegisteredTable registeredTable = getRegisteredTable(table);
+
+        T cached = (T) registeredTable.getCached(id);
+        if (cached != null) {
+            return cached;
+        }
+
+        long modification = registeredTable.getModificationCount();
+        //every execution binds its own values, so no lock is held while waiting for a connection
+        CompiledQuery<T> query = registeredTable.getSelectByIdQuery(this);
+        List<T> results = query.execute(id);
+
+        if (results.isEmpty()) {
+            return null;
+        }
+
+        T result = results.get(0);
+        registeredTable.cache(result, modification);
+        return result;
+    }
+
+    /**
+     * Gets the entries with these ids. Cached entries are taken from the cache of the table, the others are selected with
+     * IN queries of at most {@link #MAX_IN_SIZE} ids. The amount of ids of a query is rounded up to a power of two, so
+     * only a few different queries are needed.
+     *
+     * @param table The class of the table
+     * @param ids   The ids of the entries
+     * @param <T>   The type of the table
+     * @return The entries mapped by their ids in the order of the ids, ids without a entry are left out
+     * @throws RegistrationException If the table is not registered
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends TableObject> Map<Long, T> findByIds(Class<T> table, Collection<Long> ids) {
+        RegisteredTable registeredTable = getRegisteredTable(table);
+        Column idColumn = registeredTable.getIDColumn();
+        Map<Long, T> found = new HashMap<Long, T>();
+        List<Long> missing = new ArrayList<Long>();
+
+        for (Long id : new LinkedHashSet<Long>(ids)) {
+            T cached = (T) registeredTable.getCached(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += MAX_IN_SIZE) {
+            List<Long> chunk = missing.subList(from, Math.min(from + MAX_IN_SIZE, missing.size()));
+            int amount = Integer.highestOneBit(chunk.size());
+            if (amount < chunk.size()) {
+                amount <<= 1;
+            }
+
+            //the unused parameters repeat the last id
+            Object[] values = new Object[amount];
+            for (int i = 0; i < amount; i++) {
+                values[i] = chunk.get(Math.min(i, chunk.size() - 1));
+            }
+
+            long modification = registeredTable.getModificationCount();
+            CompiledQuery<T> query = registeredTable.getSelectByIdsQuery(this, amount);
+            for (T result : query.execute(values)) {
+                found.put(idColumn.getLong(result), result);
+                registeredTable.cache(result, modification);
+            }
+        }
+
+        Map<Long, T> results = new LinkedHashMap<Long, T>();
+        for (Long id : ids) {
+            T result = found.get(id);
+            if (result != null) {
+                results.put(id, result);
+            }
+        }
+        return results;
+    }
+
     /**
      * Saves a object to the table in your database. The class of the object must not be not registered!
-     * If the there is already an entry in the database with the id of the object or the id is equal or less than 0 the
-     * table gets updated else a new entry gets inserted.
+     * If the id is equal or less than 0 a new entry gets inserted and the object gets its new id. Else the entry with
+     * this id gets updated or inserted if it does not exist yet. This needs only one query.
+     * <p/>
+     * If the table tracks changes and the entry was loaded or saved before only the changed columns are updated. If the
+     * entry was deleted meanwhile it is inserted again with all columns. Nothing is written if no column changed.
      *
      * @param tableObject The object to insert/update
      * @throws RegistrationException If the table is not registered
@@ -221,24 +544,98 @@ public abstract class Database {
         RegisteredTable table = getRegisteredTable(tableObject);
         Column idColumn = table.getIDColumn();
 
-        if (((Number) idColumn.getValue(tableObject)).intValue() <= 0 || !existsEntry(table, tableObject)) {
+        if (isNewEntry(idColumn, tableObject)) {
             insert(table, tableObject, idColumn);
+        } else if (table.hasSnapshot(tableObject)) {
+            if (!update(table, tableObject, idColumn)) {
+                //the entry was deleted meanwhile
+                upsert(table, tableObject);
+            }
         } else {
-            update(table, tableObject, idColumn);
+            upsert(table, tableObject);
         }
     }
 
-    public void delete(TableObject tableObject) {
-        accessLock.lock();
+    /**
+     * Saves many objects like {@link #save(TableObject)}, but uses batches. New objects are inserted in one batch and get
+     * their new ids, all other objects are inserted/updated in another batch per table. Everything is written in one
+     * transaction.
+     *
+     * @param tableObjects The objects to insert/update
+     * @throws RegistrationException If a table is not registered
+     */
+    public void saveAll(Collection<? extends TableObject> tableObjects) {
+        Set<RegisteredTable> tables = new LinkedHashSet<RegisteredTable>();
+
+        beginTransaction();
+        try {
+            saveAll(tableObjects, tables);
+        } catch (RuntimeException e) {
+            rollback();
+            throw e;
+        } catch (Error e) {
+            rollback();
+            throw e;
+        }
+
         try {
+            commit();
+        } catch (RuntimeException e) {
+            for (RegisteredTable table : tables) {
+                table.invalidate();
+            }
+            throw e;
+        }
+    }
+
+    private void saveAll(Collection<? extends TableObject> tableObjects, Set<RegisteredTable> tables) {
+        for (TableObject tableObject : tableObjects) {
             RegisteredTable table = getRegisteredTable(tableObject);
+
+            if (isNewEntry(table.getIDColumn(), tableObject)) {
+                addInsertBatch(tableObject);
+            } else if (table.hasSnapshot(tableObject)) {
+                addUpdateBatch(tableObject);
+            } else {
+                addUpsertBatch(tableObject);
+            }
+
+            tables.add(table);
+        }
+
+        for (RegisteredTable table : tables) {
+            executeUpsertBatch(table);
+            executeUpdateBatch(table);
+            executeInsertBatch(table);
+        }
+    }
+
+    private static boolean isNewEntry(Column idColumn, TableObject tableObject) {
+        if (idColumn.getType().isPrimitive()) {
+            return idColumn.getLong(tableObject) <= 0;
+        }
+
+        Object id = idColumn.getValue(tableObject);
+        return id == null || ((Number) id).longValue() <= 0;
+    }
+
+    public void delete(TableObject tableObject) {
+        RegisteredTable table = getRegisteredTable(tableObject);
+        pinConnection();
+        Lock lock = table.getLock();
+        lock.lock();
+        try {
             Column idColumn = table.getIDColumn();
 
             PreparedQuery statement = table.getPreparedDeleteStatement();
             statement.set(idColumn, 0, idColumn.getValue(tableObject));
             statement.update();
+            markModified(table);
+            table.forgetSnapshot(tableObject);
+            table.uncache(tableObject);
         } finally {
-            accessLock.unlock();
+            lock.unlock();
+            unpinConnection();
         }
     }
 
@@ -247,7 +644,8 @@ public abstract class Database {
     }
 
     /**
-     * Attempts to update the object in the database
+     * Attempts to update the object in the database. If the table tracks changes only the changed columns are written
+     * and nothing is done if no column changed.
      *
      * @param tableObject The object to update
      * @throws RegistrationException If the table is not registered
@@ -273,64 +671,272 @@ public abstract class Database {
     }
 
     private void insert(RegisteredTable registeredTable, TableObject object, Column idColumn) {
-        accessLock.lock();
+        registeredTable.checkComplete(object);
+        pinConnection();
+        Lock lock = registeredTable.getLock();
+        lock.lock();
         try {
             PreparedQuery insert = registeredTable.getPreparedInsertStatement();
             setColumnValues(insert, registeredTable, object, idColumn);
             insert.update();
-            idColumn.setValue(object, getLastEntryId(registeredTable));
+            markModified(registeredTable);
+
+            long[] keys = insert.getGeneratedKeys();
+            if (keys.length == 0) {
+                throw new QueryException("The database did not return a id for the new entry in %s!", registeredTable.getName());
+            }
+            idColumn.setValue(object, keys[0]);
+            registeredTable.takeSnapshot(object);
+            registeredTable.cache(object);
         } finally {
-            accessLock.unlock();
+            lock.unlock();
+            unpinConnection();
         }
     }
 
-    private void update(RegisteredTable registeredTable, TableObject object, Column idColumn) {
-        accessLock.lock();
+    /**
+     * Updates the changed columns of the entry
+     *
+     * @return Whether nothing had to be written or a entry was updated, false if there is no entry with this id
+     */
+    private boolean update(RegisteredTable registeredTable, TableObject object, Column idColumn) {
+        pinConnection();
+        Lock lock = registeredTable.getLock();
+        lock.lock();
         try {
-            PreparedQuery update = registeredTable.getPreparedUpdateStatement();
-            int i = setColumnValues(update, registeredTable, object, idColumn);
+            long columns = registeredTable.getChangedColumns(object);
+            if (columns == 0) {
+                //the entry is not cached again, it might have been deleted meanwhile
+                return true;
+            } else if (columns == ChangeTracker.ALL_COLUMNS) {
+                registeredTable.checkComplete(object);
+            }
+
+            PreparedQuery update = registeredTable.getPreparedUpdateStatement(this, columns);
+            int i = setColumnValues(update, registeredTable, object, columns);
             update.set(idColumn, i, idColumn.getValue(object));
-            update.update();
+            boolean updated = update.update();
+            markModified(registeredTable);
+            if (!updated) {
+                registeredTable.uncache(object);
+                return false;
+            }
+
+            registeredTable.takeSnapshot(object);
+            registeredTable.cache(object);
+            return true;
         } finally {
-            accessLock.unlock();
+            lock.unlock();
+            unpinConnection();
+        }
+    }
+
+    private void upsert(RegisteredTable registeredTable, TableObject object) {
+        registeredTable.checkComplete(object);
+        pinConnection();
+        Lock lock = registeredTable.getLock();
+        lock.lock();
+        try {
+            PreparedQuery upsert = registeredTable.getPreparedUpsertStatement();
+            setAllColumnValues(upsert, registeredTable, object);
+            upsert.update();
+            markModified(registeredTable);
+            registeredTable.takeSnapshot(object);
+            registeredTable.cache(object);
+        } finally {
+            lock.unlock();
+            unpinConnection();
+        }
+    }
+
+    /**
+     * Adds a delta to a counter column. The value of the object is changed at once, but the database is only updated by
+     * {@link #flushCounters()}. Until then all deltas of the same counter are summed up, so the counter is written once
+     * per flush with "column = column + delta". Because only the delta is written, other processes can increment the
+     * same counter at the same time. Saving the entry does not overwrite counters.
+     * <p/>
+     * Atomic fields should be used if the same object is incremented by several threads.
+     *
+     * @param tableObject The stored entry
+     * @param column      The name of the counter column
+     * @param delta       The delta
+     * @throws QueryException If the column is not a counter or the entry is not stored yet
+     */
+    public void increment(TableObject tableObject, String column, long delta) {
+        RegisteredTable table = getRegisteredTable(tableObject);
+        Column counter = table.getColumn(column);
+        if (counter == null) {
+            throw new QueryException("The table %s has no column %s!", table.getName(), column);
+        }
+
+        increment(table, tableObject, counter, delta);
+    }
+
+    public void increment(TableObject tableObject, Column column, long delta) {
+        increment(getRegisteredTable(tableObject), tableObject, column, delta);
+    }
+
+    private void increment(RegisteredTable table, TableObject tableObject, Column column, long delta) {
+        if (!column.isCounter()) {
+            throw new QueryException("The column %s of %s is not a counter!", column.getName(), table.getName());
         }
+
+        Column idColumn = table.getIDColumn();
+        if (isNewEntry(idColumn, tableObject)) {
+            throw new QueryException("The entry must be stored before its counter %s can be incremented!", column.getName());
+        }
+
+        Object value = column.getValue(tableObject);
+        if (value instanceof AtomicInteger) {
+            ((AtomicInteger) value).addAndGet((int) delta);
+        } else if (value instanceof AtomicLong) {
+            ((AtomicLong) value).addAndGet(delta);
+        } else {
+            long current = value == null ? 0 : ((Number) value).longValue();
+            switch (column.getColumnType()) {
+                case PRIMITIVE_INT:
+                case INTEGER:
+                case ATOMIC_INTEGER:
+                    column.setValue(tableObject, (int) (current + delta));
+                    break;
+                default:
+                    column.setValue(tableObject, current + delta);
+            }
+        }
+
+        counters.add(table, column, idColumn.getLong(tableObject), delta);
+    }
+
+    /**
+     * Writes the pending deltas of all counters. Every table is written in one transaction with one batch per counter
+     * column. If writing a table fails its deltas stay pending.
+     * <p/>
+     * This is done when the database gets closed, {@link com.p000ison.dev.sqlapi.util.CounterFlusher} does it
+     * periodically.
+     *
+     * @throws QueryException If writing the deltas of a table failed
+     */
+    public void flushCounters() {
+        if (counters.isEmpty()) {
+            return;
+        }
+
+        RuntimeException failure = null;
+        for (Map.Entry<RegisteredTable, Map<Column, Map<Long, Long>>> entry : counters.drain().entrySet()) {
+            try {
+                writeCounters(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                counters.restore(entry.getKey(), entry.getValue());
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Writes the deltas of the counters of a table in one transaction
+     */
+    private void writeCounters(final RegisteredTable table, final Map<Column, Map<Long, Long>> deltas) {
+        inTransaction(new Transaction<Void>() {
+            @Override
+            public Void execute(Database database) {
+                Lock lock = table.getLock();
+                lock.lock();
+                try {
+                    for (Map.Entry<Column, Map<Long, Long>> column : deltas.entrySet()) {
+                        PreparedQuery increment = table.getPreparedIncrementStatement(database, column.getKey());
+                        try {
+                            for (Map.Entry<Long, Long> delta : column.getValue().entrySet()) {
+                                increment.set(0, delta.getValue());
+                                increment.set(1, delta.getKey());
+                                increment.addBatch();
+                            }
+                            increment.executeBatches();
+                        } finally {
+                            increment.clearBatch();
+                        }
+                    }
+                } finally {
+                    markModified(table);
+                    lock.unlock();
+                }
+                return null;
+            }
+        });
     }
 
     public void addUpdateBatch(TableObject object) {
         RegisteredTable table = getRegisteredTable(object);
-        PreparedQuery update = table.getPreparedUpdateStatement();
-        accessLock.lock();
+        Lock lock = table.getLock();
+        lock.lock();
         try {
+            long columns = table.getChangedColumns(object);
+            if (columns == 0) {
+                return;
+            } else if (columns == ChangeTracker.ALL_COLUMNS) {
+                table.checkComplete(object);
+            }
+
+            PreparedQuery update = table.getPreparedUpdateStatement(this, columns);
             Column id = table.getIDColumn();
-            int i = setColumnValues(update, table, object, table.getIDColumn());
+            int i = setColumnValues(update, table, object, columns);
             update.set(id, i, id.getValue(object));
             update.addBatch();
+            table.takeSnapshot(object);
+            table.uncache(object);
         } finally {
-            accessLock.unlock();
+            lock.unlock();
         }
     }
 
     public void addInsertBatch(TableObject object) {
         RegisteredTable table = getRegisteredTable(object);
         PreparedQuery update = table.getPreparedInsertStatement();
-        accessLock.lock();
+        Lock lock = table.getLock();
+        lock.lock();
         try {
+            table.checkComplete(object);
             setColumnValues(update, table, object, table.getIDColumn());
             update.addBatch();
+            table.addPendingInsert(object);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void addUpsertBatch(TableObject object) {
+        RegisteredTable table = getRegisteredTable(object);
+        PreparedQuery upsert = table.getPreparedUpsertStatement();
+        Lock lock = table.getLock();
+        lock.lock();
+        try {
+            table.checkComplete(object);
+            setAllColumnValues(upsert, table, object);
+            upsert.addBatch();
+            table.takeSnapshot(object);
+            table.uncache(object);
         } finally {
-            accessLock.unlock();
+            lock.unlock();
         }
     }
 
     public void addDeleteBatch(TableObject object) {
         RegisteredTable table = getRegisteredTable(object);
         PreparedQuery update = table.getPreparedDeleteStatement();
-        accessLock.lock();
+        Lock lock = table.getLock();
+        lock.lock();
         try {
             update.set(0, table.getIDColumn().getValue(object));
             update.addBatch();
+            table.forgetSnapshot(object);
+            table.uncache(object);
         } finally {
-            accessLock.unlock();
+            lock.unlock();
         }
     }
 
@@ -338,7 +944,7 @@ public abstract class Database {
      * Runs the batch and executes the stored commands
      *
      * @param clazz   The class
-     * @param bitmask Defines whether to run the update, insert or delete statements. Example: 1 | 1 << 1 | 1 << 2 for all
+     * @param bitmask Defines whether to run the update, insert, delete or upsert statements. Example: 1 | 1 << 1 | 1 << 2 | 1 << 3 for all
      */
     public void executeBatch(Class<? extends TableObject> clazz, int bitmask) {
         executeBatch(getRegisteredTable(clazz), bitmask);
@@ -348,7 +954,7 @@ public abstract class Database {
      * Runs the batch and executes the stored commands
      *
      * @param table   The class
-     * @param bitmask Defines whether to run the update, insert or delete statements. Example: 1 | 1 << 1 | 1 << 2(0111) for all. The first bit defines updating, the second inserting and the last deleting
+     * @param bitmask Defines whether to run the update, insert, delete or upsert statements. Example: 1 | 1 << 1 | 1 << 2 | 1 << 3(1111) for all. The first bit defines updating, the second inserting, the third deleting and the last upserting
      */
     public void executeBatch(RegisteredTable table, int bitmask) {
         if ((bitmask & 1) != 0) {
@@ -360,15 +966,28 @@ public abstract class Database {
         if ((bitmask & 1 << 2) != 0) {
             executeDeleteBatch(table);
         }
+        if ((bitmask & 1 << 3) != 0) {
+            executeUpsertBatch(table);
+        }
     }
 
     public void executeUpdateBatch(RegisteredTable table) {
-        accessLock.lock();
+        pinConnection();
+        Lock lock = table.getLock();
+        lock.lock();
         try {
             PreparedQuery update = table.getPreparedUpdateStatement();
             update.executeBatches();
+            for (PreparedQuery partialUpdate : table.getPreparedPartialUpdateStatements()) {
+                partialUpdate.executeBatches();
+            }
+        } catch (RuntimeException e) {
+            table.invalidate();
+            throw e;
         } finally {
-            accessLock.unlock();
+            markModified(table);
+            lock.unlock();
+            unpinConnection();
         }
     }
 
@@ -377,12 +996,29 @@ public abstract class Database {
     }
 
     public void executeInsertBatch(RegisteredTable table) {
-        accessLock.lock();
+        pinConnection();
+        Lock lock = table.getLock();
+        lock.lock();
         try {
             PreparedQuery insert = table.getPreparedInsertStatement();
+            List<TableObject> inserted = table.pollPendingInserts();
             insert.executeBatches();
+
+            long[] keys = insert.getGeneratedKeys();
+            if (keys.length != inserted.size()) {
+                log(Level.WARNING, "The database returned %s ids for %s new entries in %s!", keys.length, inserted.size(), table.getName());
+            } else {
+                Column idColumn = table.getIDColumn();
+                for (int i = 0; i < keys.length; i++) {
+                    TableObject tableObject = inserted.get(i);
+                    idColumn.setValue(tableObject, keys[i]);
+                    table.takeSnapshot(tableObject);
+                }
+            }
         } finally {
-            accessLock.unlock();
+            markModified(table);
+            lock.unlock();
+            unpinConnection();
         }
     }
 
@@ -391,12 +1027,16 @@ public abstract class Database {
     }
 
     public void executeDeleteBatch(RegisteredTable table) {
-        accessLock.lock();
+        pinConnection();
+        Lock lock = table.getLock();
+        lock.lock();
         try {
             PreparedQuery delete = table.getPreparedDeleteStatement();
             delete.executeBatches();
         } finally {
-            accessLock.unlock();
+            markModified(table);
+            lock.unlock();
+            unpinConnection();
         }
     }
 
@@ -404,6 +1044,27 @@ public abstract class Database {
         executeDeleteBatch(getRegisteredTable(table));
     }
 
+    public void executeUpsertBatch(RegisteredTable table) {
+        pinConnection();
+        Lock lock = table.getLock();
+        lock.lock();
+        try {
+            PreparedQuery upsert = table.getPreparedUpsertStatement();
+            upsert.executeBatches();
+        } catch (RuntimeException e) {
+            table.invalidate();
+            throw e;
+        } finally {
+            markModified(table);
+            lock.unlock();
+            unpinConnection();
+        }
+    }
+
+    public void executeUpsertBatch(Class<? extends TableObject> table) {
+        executeUpsertBatch(getRegisteredTable(table));
+    }
+
     private int setColumnValues(PreparedQuery statement, RegisteredTable registeredTable, TableObject object, Column idColumn) {
         List<Column> registeredColumns = registeredTable.getRegisteredColumns();
         int i = 0;
@@ -420,6 +1081,38 @@ public abstract class Database {
         return i;
     }
 
+    /**
+     * Sets the values of the columns in the bitmask without the id in the order of the registered columns
+     *
+     * @return The amount of values which were set
+     */
+    private static int setColumnValues(PreparedQuery statement, RegisteredTable registeredTable, TableObject object, long columns) {
+        List<Column> registeredColumns = registeredTable.getRegisteredColumns();
+        int i = 0;
+        for (int index = 0; index < registeredColumns.size(); index++) {
+            Column column = registeredColumns.get(index);
+            if (column.isID() || (columns & 1L << index) == 0 || column.isCounter()) {
+                continue;
+            }
+
+            statement.set(column, i, column.getValue(object));
+            i++;
+        }
+
+        return i;
+    }
+
+    /**
+     * Sets the values of all columns including the id in the order of the registered columns
+     */
+    private static void setAllColumnValues(PreparedQuery statement, RegisteredTable registeredTable, TableObject object) {
+        List<Column> registeredColumns = registeredTable.getRegisteredColumns();
+        for (int i = 0; i < registeredColumns.size(); i++) {
+            Column column = registeredColumns.get(i);
+            statement.set(column, i, column.getValue(object));
+        }
+    }
+
     protected DatabaseConfiguration getConfiguration() {
         return configuration;
     }
@@ -440,16 +1133,83 @@ public abstract class Database {
      */
     public abstract PreparedQuery createPreparedStatement(String query);
 
-    protected abstract <T extends TableObject> PreparedSelectQuery<T> createPreparedSelectQuery(String query, RegisteredTable table);
+    /**
+     * Creates a new PreparedQuery which can be executed now or later.
+     *
+     * @param query               The query to prepare
+     * @param returnGeneratedKeys Whether the query should return the keys it generates (see {@link PreparedQuery#getGeneratedKeys()})
+     * @return A PreparedQuery
+     */
+    public abstract PreparedQuery createPreparedStatement(String query, boolean returnGeneratedKeys);
+
+    /**
+     * Creates the statement which inserts a entry with all columns except the id and returns the generated id. It
+     * takes the values in the order of the registered columns.
+     *
+     * @param table The table
+     * @return The statement
+     */
+    protected PreparedQuery createPreparedInsertStatement(RegisteredTable table) {
+        return createPreparedStatement(table.buildInsertQuery(), true);
+    }
+
+    /**
+     * Creates a new PreparedSelectQuery which reads the results into TableObjects
+     *
+     * @param query   The query
+     * @param table   The table
+     * @param columns The selected columns in the order of the query
+     * @return The PreparedSelectQuery
+     */
+    protected abstract <T extends TableObject> PreparedSelectQuery<T> createPreparedSelectQuery(String query, RegisteredTable table, List<Column> columns);
 
     public abstract boolean executeDirectUpdate(String query);
 
+    /**
+     * Executes a query and reads the raw values of the rows, without creating TableObjects
+     *
+     * @param query   The query
+     * @param values  The values of the parameters
+     * @param columns The amount of columns of a row
+     * @return The rows
+     */
+    protected abstract List<Object[]> selectValues(String query, Object[] values, int columns);
+
+    /**
+     * Executes a query and reads the rows as {@link RowView}s, without creating TableObjects
+     *
+     * @param query   The query
+     * @param values  The values of the parameters
+     * @param columns The selected columns in the order of the query
+     * @return The rows
+     */
+    protected abstract List<RowView> selectRows(String query, Object[] values, List<Column> columns);
+
+    /**
+     * Builds a query which inserts a entry with all registered columns (including the id) in the order of
+     * {@link RegisteredTable#getRegisteredColumns()}. If there is already a entry with this id it gets updated instead.
+     *
+     * @param table        The table
+     * @param keepCounters Whether the counter columns of a existing entry should keep their values
+     * @return The query
+     */
+    protected abstract String buildUpsertQuery(RegisteredTable table, boolean keepCounters);
+
+    /**
+     * Gets the fetch size which is used to read the entries of a copy
+     *
+     * @param fetchSize The fetch size of the options
+     * @return The fetch size for the driver
+     * @see CopyOptions#setFetchSize(int)
+     */
+    protected int getCopyFetchSize(int fetchSize) {
+        return fetchSize;
+    }
+
     public abstract boolean existsEntry(RegisteredTable table, TableObject object);
 
     public abstract boolean existsEntry(TableObject object);
 
-    protected abstract long getLastEntryId(RegisteredTable table);
-
     /**
      * Checks whether the class is supported by this database/database engine
      *
@@ -467,26 +1227,302 @@ public abstract class Database {
      * @param <T>   The type of the table
      */
     public <T extends TableObject> void copy(Class<T> table, Database to) {
-        RegisteredTable registeredTable = to.getRegisteredTable(table);
-        PreparedSelectQuery<T> prepare = this.<T>select().from(table).prepare();
-        PreparedQuery statement = registeredTable.createFullInsertStatement(to);
+        copy(table, to, new CopyOptions());
+    }
+
+    /**
+     * Copies the entries of a table from this database to another database. The entries are read ordered by their id
+     * with a cursor and written as upsert batches, every batch in its own transaction. So only one batch is in memory
+     * and a crashed copy can be resumed after the last id which was reported to the {@link CopyProgress}.
+     * <p/>
+     * The destination must be a other database, because the cursor keeps a connection of this database.
+     *
+     * @param table   The table
+     * @param to      The destination
+     * @param options The options
+     * @param <T>     The type of the table
+     * @return The amount of copied entries
+     */
+    public <T extends TableObject> long copy(final Class<T> table, Database to, final CopyOptions options) {
+        final Column idColumn = getRegisteredTable(table).getIDColumn();
 
-        for (T entry : prepare.getResults()) {
+        PreparedSelectQuery<T> query = this.<T>select().from(table).where().greaterThan(idColumn.getName(), options.getStartAfter()).select().orderBy(idColumn.getName()).prepare();
 
-            if (to.existsEntry(registeredTable, entry)) {
-                to.update(entry);
-            } else {
-                int i = 0;
-                for (Column column : registeredTable.getRegisteredColumns()) {
-                    statement.set(column, i, column.getValue(entry));
-                    i++;
+        return transfer(table, to, query, options, new BatchListener<T>() {
+            @Override
+            public void written(List<T> batch, long copied) {
+                CopyProgress progress = options.getProgress();
+                if (progress != null) {
+                    progress.copied(table, copied, idColumn.getLong(batch.get(batch.size() - 1)));
+                }
+            }
+        });
+    }
+
+    /**
+     * Copies only the entries which were modified since the watermark to another database. The entries are selected by
+     * the modification column of the table, so the costs depend on the amount of changed entries and not on the size of
+     * the table. Entries which have the same modification value as the watermark are copied again, because they could
+     * have been written after the last sync.
+     * <p/>
+     * Deleted entries are not removed in the destination.
+     *
+     * @param table     The table
+     * @param to        The destination
+     * @param watermark The watermark returned by the last sync, {@link Long#MIN_VALUE} to copy all entries
+     * @param <T>       The type of the table
+     * @return The new watermark, the highest modification value which was copied
+     * @throws QueryException If the table has no modification column
+     * @see com.p000ison.dev.sqlapi.annotation.DatabaseColumn#modification()
+     */
+    public <T extends TableObject> long syncSince(Class<T> table, Database to, long watermark) {
+        return syncSince(table, to, watermark, new CopyOptions());
+    }
+
+    /**
+     * Copies only the entries which were modified since the watermark to another database like
+     * {@link #syncSince(Class, Database, long)}. The start id of the options is ignored.
+     *
+     * @param table     The table
+     * @param to        The destination
+     * @param watermark The watermark returned by the last sync, {@link Long#MIN_VALUE} to copy all entries
+     * @param options   The options
+     * @param <T>       The type of the table
+     * @return The new watermark, the highest modification value which was copied
+     * @throws QueryException If the table has no modification column
+     */
+    public <T extends TableObject> long syncSince(final Class<T> table, Database to, long watermark, final CopyOptions options) {
+        RegisteredTable source = getRegisteredTable(table);
+        final Column modificationColumn = source.getModificationColumn();
+        if (modificationColumn == null) {
+            throw new QueryException("The table %s has no modification column!", source.getName());
+        }
+        final Column idColumn = source.getIDColumn();
+
+        //greater than the watermark - 1, so the entries of the last modification value are included
+        long after = watermark == Long.MIN_VALUE ? watermark : watermark - 1;
+        Object expected;
+        switch (modificationColumn.getColumnType()) {
+            case DATE:
+            case TIMESTAMP:
+                expected = new Timestamp(after);
+                break;
+            default:
+                expected = after;
+        }
+
+        PreparedSelectQuery<T> query = this.<T>select().from(table).where().greaterThan(modificationColumn, expected).select()
+                .orderBy(modificationColumn).orderBy(idColumn).prepare();
+
+        final long[] newWatermark = {watermark};
+        transfer(table, to, query, options, new BatchListener<T>() {
+            @Override
+            public void written(List<T> batch, long copied) {
+                T last = batch.get(batch.size() - 1);
+                Object value = modificationColumn.getValue(last);
+                if (value instanceof Number) {
+                    newWatermark[0] = Math.max(newWatermark[0], ((Number) value).longValue());
+                } else if (value instanceof Date) {
+                    newWatermark[0] = Math.max(newWatermark[0], ((Date) value).getTime());
+                }
+
+                CopyProgress progress = options.getProgress();
+                if (progress != null) {
+                    progress.copied(table, copied, idColumn.getLong(last));
+                }
+            }
+        });
+
+        return newWatermark[0];
+    }
+
+    /**
+     * Copies the entries which were modified since the last sync of this table to the destination like
+     * {@link #syncSince(Class, Database, long)}. The watermark is kept per table and destination, it can be stored and
+     * restored with {@link #getWatermark(Class, Database)} and {@link #setWatermark(Class, Database, long)}.
+     *
+     * @param table The table
+     * @param to    The destination
+     * @param <T>   The type of the table
+     * @return The new watermark
+     */
+    public <T extends TableObject> long sync(Class<T> table, Database to) {
+        SyncState state = getSyncState(table, to);
+        //only syncs of the same table and destination wait for each other
+        state.lock.lock();
+        try {
+            long watermark = syncSince(table, to, state.watermark);
+            state.watermark = watermark;
+            return watermark;
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the watermark of the last {@link #sync(Class, Database)} of this table to the destination
+     *
+     * @param table The table
+     * @param to    The destination
+     * @return The watermark or {@link Long#MIN_VALUE} if the table was never synced
+     */
+    public long getWatermark(Class<? extends TableObject> table, Database to) {
+        return getSyncState(table, to).watermark;
+    }
+
+    public void setWatermark(Class<? extends TableObject> table, Database to, long watermark) {
+        getSyncState(table, to).watermark = watermark;
+    }
+
+    private SyncState getSyncState(Class<? extends TableObject> table, Database to) {
+        RegisteredTable registeredTable = getRegisteredTable(table);
+        Map<RegisteredTable, SyncState> tables = syncStates.get(to);
+        if (tables == null) {
+            synchronized (syncStates) {
+                tables = syncStates.get(to);
+                if (tables == null) {
+                    tables = new ConcurrentHashMap<RegisteredTable, SyncState>();
+                    syncStates.put(to, tables);
+                }
+            }
+        }
+
+        SyncState state = tables.get(registeredTable);
+        if (state == null) {
+            synchronized (tables) {
+                state = tables.get(registeredTable);
+                if (state == null) {
+                    state = new SyncState();
+                    tables.put(registeredTable, state);
+                }
+            }
+        }
+        return state;
+    }
+
+    /**
+     * The watermark of a table and destination and the lock which is held while syncing them
+     */
+    private static final class SyncState {
+        private final Lock lock = new ReentrantLock();
+        private volatile long watermark = Long.MIN_VALUE;
+    }
+
+    /**
+     * Streams the results of the query to the destination and writes them as upsert batches
+     *
+     * @return The amount of copied entries
+     */
+    private <T extends TableObject> long transfer(Class<T> table, Database to, PreparedSelectQuery<T> query, CopyOptions options, BatchListener<T> listener) {
+        RegisteredTable destination = to.getRegisteredTable(table);
+        PreparedQuery upsert = to.createPreparedStatement(to.buildUpsertQuery(destination, false));
+        query.setFetchSize(getCopyFetchSize(options.getFetchSize()));
+        //the entries are not kept, so they do not need snapshots
+        query.setTrackingChanges(false);
+
+        List<T> batch = new ArrayList<T>(Math.min(options.getBatchSize(), DEFAULT_COPY_BUFFER));
+        long copied = 0;
+        ResultIterator<T> results = query.iterate();
+        try {
+            while (results.hasNext()) {
+                batch.add(results.next());
+
+                if (batch.size() == options.getBatchSize() || !results.hasNext()) {
+                    to.writeCopyBatch(destination, upsert, batch);
+                    copied += batch.size();
+                    listener.written(batch, copied);
+                    batch.clear();
+                }
+            }
+        } finally {
+            results.close();
+        }
+
+        return copied;
+    }
+
+    /**
+     * Gets notified after a batch of a transfer was written
+     */
+    private interface BatchListener<T> {
+        void written(List<T> batch, long copied);
+    }
+
+    /**
+     * Copies several tables at the same time like {@link #copy(Class, Database, CopyOptions)}. Every table is copied by
+     * its own thread, so the pools of both databases should have enough connections.
+     *
+     * @param tables  The tables
+     * @param to      The destination
+     * @param options The options, they are used for all tables
+     * @param threads The amount of tables which are copied at the same time
+     * @return The amount of copied entries
+     * @throws QueryException If copying a table failed, the other tables are still copied
+     */
+    public long copy(Collection<Class<? extends TableObject>> tables, final Database to, final CopyOptions options, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<Future<Long>>();
+            for (final Class<? extends TableObject> table : tables) {
+                results.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() {
+                        return copy(table, to, options);
+                    }
+                }));
+            }
+
+            long copied = 0;
+            RuntimeException failure = null;
+            for (Future<Long> result : results) {
+                try {
+                    copied += result.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new QueryException(e.getCause());
+                    }
                 }
-                statement.update();
             }
+
+            if (failure != null) {
+                throw failure;
+            }
+            return copied;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryException(e);
+        } finally {
+            executor.shutdownNow();
         }
+    }
 
-        prepare.close();
-        statement.update();
+    /**
+     * Writes the entries with the upsert statement in one transaction
+     */
+    private void writeCopyBatch(final RegisteredTable table, final PreparedQuery upsert, final List<? extends TableObject> batch) {
+        inTransaction(new Transaction<Void>() {
+            @Override
+            public Void execute(Database database) {
+                Lock lock = table.getLock();
+                lock.lock();
+                try {
+                    for (TableObject entry : batch) {
+                        setAllColumnValues(upsert, table, entry);
+                        upsert.addBatch();
+                    }
+                    upsert.executeBatches();
+                } finally {
+                    upsert.clearBatch();
+                    //only the written entries might be outdated now
+                    for (TableObject entry : batch) {
+                        table.uncache(entry);
+                    }
+                    markModified(table);
+                    lock.unlock();
+                }
+                return null;
+            }
+        });
     }
 
     public boolean isRegistered(Class<? extends TableObject> table) {
@@ -528,9 +1564,5 @@ public abstract class Database {
 
     public abstract String getEngineName();
 
-    public static Lock getAccessLock() {
-        return accessLock;
-    }
-
     public abstract void sendKeepAliveQuery();
 }
@@ -26,6 +26,19 @@ import java.util.Map;
  * The Configuration for a {@link Database} connection.
  */
 public abstract class DatabaseConfiguration {
+    /**
+     * The default time in milliseconds a pooled connection can be idle before it gets closed
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT = 10 * 60 * 1000L;
+    /**
+     * The default amount of prepared statements which are kept per connection
+     */
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+    /**
+     * The default amount of bytes the values of a multi-row insert may have, MySQL 5.5 allows packets of 1 MB by default
+     */
+    public static final long DEFAULT_MAX_INSERT_BYTES = 512 * 1024L;
+
     private final Map<String, Object> properties;
     private final String driver;
 
@@ -95,4 +108,66 @@ public abstract class DatabaseConfiguration {
             properties.put("autoReconnect", true);
         }
     }
+
+    /**
+     * Gets the maximum amount of connections which can be open at the same time
+     *
+     * @return The size of the connection pool
+     */
+    public int getPoolSize() {
+        Object size = properties.get("poolSize");
+
+        if (size instanceof Integer) {
+            return (Integer) size;
+        }
+
+        return 1;
+    }
+
+    /**
+     * Gets the time in milliseconds a connection can be idle before it gets closed. 0 means never.
+     *
+     * @return The idle timeout
+     */
+    public long getIdleTimeout() {
+        Object timeout = properties.get("idleTimeout");
+
+        if (timeout instanceof Number) {
+            return ((Number) timeout).longValue();
+        }
+
+        return DEFAULT_IDLE_TIMEOUT;
+    }
+
+    /**
+     * Gets the maximum amount of prepared statements which are kept open per connection. If there are more the least
+     * recently used statement gets closed.
+     *
+     * @return The size of the statement cache
+     */
+    public int getStatementCacheSize() {
+        Object size = properties.get("statementCacheSize");
+
+        if (size instanceof Integer) {
+            return (Integer) size;
+        }
+
+        return DEFAULT_STATEMENT_CACHE_SIZE;
+    }
+
+    /**
+     * Gets the estimated amount of bytes the values of one multi-row insert may have. Batches with large values are
+     * split into more queries, so they do not exceed the maximum packet size of the server.
+     *
+     * @return The maximum amount of bytes
+     */
+    public long getMaxInsertBytes() {
+        Object bytes = properties.get("maxInsertBytes");
+
+        if (bytes instanceof Number) {
+            return ((Number) bytes).longValue();
+        }
+
+        return DEFAULT_MAX_INSERT_BYTES;
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 10.01.13 14:05
+ */
+
+package com.p000ison.dev.sqlapi;
+
+import com.p000ison.dev.sqlapi.query.CompiledQuery;
+import com.p000ison.dev.sqlapi.query.PreparedSelectQuery;
+import com.p000ison.dev.sqlapi.query.ResultIterator;
+
+import java.util.List;
+
+/**
+ * A default compiled query which may work with your database engine
+ * <p/>
+ * The SQL and the fixed values are kept in final fields. Every execution creates its own light-weight
+ * {@link PreparedSelectQuery}, which leases a connection and reuses the statement which is already prepared on it.
+ * <p/>
+ * <strong>Info:</strong>
+ * <p/>
+ * All Default... classes are pre-made classes which may already work with your database engine.
+ */
+class DefaultCompiledQuery<T extends TableObject> implements CompiledQuery<T> {
+
+    private final Database database;
+    private final String query;
+    private final RegisteredTable table;
+    private final List<Column> columns;
+    /**
+     * The values of all parameters, the values of the prepared ones are null
+     */
+    private final Object[] values;
+    /**
+     * The indexes of the prepared parameters
+     */
+    private final int[] preparedIndexes;
+
+    DefaultCompiledQuery(Database database, String query, RegisteredTable table, List<Column> columns, Object[] values, int[] preparedIndexes) {
+        this.database = database;
+        this.query = query;
+        this.table = table;
+        this.columns = columns;
+        this.values = values;
+        this.preparedIndexes = preparedIndexes;
+    }
+
+    @Override
+    public List<T> execute(Object... values) {
+        return bind(values).getResults();
+    }
+
+    @Override
+    public ResultIterator<T> iterate(Object... values) {
+        return bind(values).iterate();
+    }
+
+    private PreparedSelectQuery<T> bind(Object[] preparedValues) {
+        if (preparedValues.length != preparedIndexes.length) {
+            throw new IllegalArgumentException(String.format("The query expects %s values, but got %s!", preparedIndexes.length, preparedValues.length));
+        }
+
+        PreparedSelectQuery<T> preparedQuery = database.createPreparedSelectQuery(query, table, columns);
+        int prepared = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (prepared < preparedIndexes.length && preparedIndexes[prepared] == i) {
+                preparedQuery.set(i, preparedValues[prepared++]);
+            } else {
+                preparedQuery.set(i, values[i]);
+            }
+        }
+
+        return preparedQuery;
+    }
+
+    @Override
+    public int getParameterCount() {
+        return preparedIndexes.length;
+    }
+
+    @Override
+    public String getQuery() {
+        return query;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 13.01.13 11:34
+ */
+
+package com.p000ison.dev.sqlapi;
+
+import com.p000ison.dev.sqlapi.exception.QueryException;
+import com.p000ison.dev.sqlapi.query.DeleteQuery;
+import com.p000ison.dev.sqlapi.query.PreparedQuery;
+import com.p000ison.dev.sqlapi.query.WhereQuery;
+
+/**
+ * A default delete query which may work with your database engine
+ * <p/>
+ * <strong>Info:</strong>
+ * <p/>
+ * All Default... classes are pre-made classes which may already work with your database engine.
+ */
+class DefaultDeleteQuery<T extends TableObject> implements DeleteQuery<T> {
+
+    private final Database database;
+    /**
+     * Holds the table and the where part
+     */
+    private final DefaultSelectQuery<T> filter;
+    private volatile boolean all;
+
+    DefaultDeleteQuery(Database database) {
+        this.database = database;
+        this.filter = new DefaultSelectQuery<T>(database);
+    }
+
+    @Override
+    public DeleteQuery<T> from(Class<T> table) {
+        filter.from(table);
+        return this;
+    }
+
+    @Override
+    public DeleteQuery<T> from(RegisteredTable table) {
+        filter.from(table);
+        return this;
+    }
+
+    @Override
+    public WhereQuery<T> where() {
+        return filter.where();
+    }
+
+    @Override
+    public DeleteQuery<T> all() {
+        all = true;
+        return this;
+    }
+
+    @Override
+    public int execute() {
+        RegisteredTable table = filter.getTable();
+        if (table == null) {
+            throw new QueryException("The query is not prepared!");
+        } else if (!all && !filter.hasWhere()) {
+            throw new QueryException("The delete query of %s has no where part! Use all() to delete all entries.", table.getName());
+        }
+
+        StringBuilder query = new StringBuilder("DELETE FROM ").append(table.getName());
+        filter.appendWhere(query);
+        query.append(';');
+
+        PreparedQuery statement = database.createPreparedStatement(query.toString());
+        Object[] values = filter.getValues();
+        for (int i = 0; i < values.length; i++) {
+            statement.set(i, values[i]);
+        }
+
+        return database.executeBulkUpdate(table, statement, true);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 11.01.13 13:10
+ */
+
+package com.p000ison.dev.sqlapi;
+
+import com.p000ison.dev.sqlapi.query.GroupedQuery;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A default grouped query which may work with your database engine
+ * <p/>
+ * <strong>Info:</strong>
+ * <p/>
+ * All Default... classes are pre-made classes which may already work with your database engine.
+ */
+class DefaultGroupedQuery<T extends TableObject> implements GroupedQuery<T> {
+
+    private final DefaultSelectQuery<T> query;
+    private final Column group;
+
+    DefaultGroupedQuery(DefaultSelectQuery<T> query, Column group) {
+        this.query = query;
+        this.group = group;
+    }
+
+    @Override
+    public Map<Object, Long> count() {
+        Map<Object, Long> counts = new LinkedHashMap<Object, Long>();
+        for (Object[] row : query.aggregate("COUNT(*)", group)) {
+            counts.put(row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<Object, Number> sum(Column column) {
+        Map<Object, Number> sums = new LinkedHashMap<Object, Number>();
+        for (Object[] row : query.aggregate("SUM(" + column.getName() + ')', group)) {
+            sums.put(row[0], (Number) row[1]);
+        }
+        return sums;
+    }
+
+    @Override
+    public Map<Object, Object> min(Column column) {
+        return aggregate("MIN(" + column.getName() + ')');
+    }
+
+    @Override
+    public Map<Object, Object> max(Column column) {
+        return aggregate("MAX(" + column.getName() + ')');
+    }
+
+    @Override
+    public Map<Object, Double> avg(Column column) {
+        Map<Object, Double> averages = new LinkedHashMap<Object, Double>();
+        for (Object[] row : query.aggregate("AVG(" + column.getName() + ')', group)) {
+            averages.put(row[0], row[1] == null ? null : ((Number) row[1]).doubleValue());
+        }
+        return averages;
+    }
+
+    private Map<Object, Object> aggregate(String function) {
+        List<Object[]> rows = query.aggregate(function, group);
+        Map<Object, Object> values = new LinkedHashMap<Object, Object>();
+        for (Object[] row : rows) {
+            values.put(row[0], row[1]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 10.01.13 18:21
+ */
+
+package com.p000ison.dev.sqlapi;
+
+import com.p000ison.dev.sqlapi.query.CompiledQuery;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the pages of a query by remembering the key of the last entry of a page. Every page is read with one
+ * query which starts right after the previous page.
+ */
+final class DefaultPageIterator<T extends TableObject> implements Iterator<List<T>> {
+
+    /**
+     * Selects the first page
+     */
+    private final CompiledQuery<T> first;
+    /**
+     * Selects the page after a key
+     */
+    private final CompiledQuery<T> next;
+    private final Column key;
+    private final int size;
+    private List<T> page;
+    private Object lastValue;
+    private boolean started, done;
+
+    DefaultPageIterator(CompiledQuery<T> first, CompiledQuery<T> next, Column key, int size) {
+        this.first = first;
+        this.next = next;
+        this.key = key;
+        this.size = size;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (page == null && !done) {
+            page = started ? next.execute(lastValue) : first.execute();
+            started = true;
+
+            if (page.isEmpty()) {
+                page = null;
+                done = true;
+            }
+        }
+
+        return page != null;
+    }
+
+    @Override
+    public List<T> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        List<T> result = page;
+        page = null;
+
+        if (result.size() < size) {
+            done = true;
+        } else {
+            lastValue = key.getValue(result.get(result.size() - 1));
+        }
+
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -20,11 +20,19 @@
 package com.p000ison.dev.sqlapi;
 
 import com.p000ison.dev.sqlapi.exception.QueryException;
+import com.p000ison.dev.sqlapi.query.CompareOperator;
+import com.p000ison.dev.sqlapi.query.CompiledQuery;
+import com.p000ison.dev.sqlapi.query.GroupedQuery;
 import com.p000ison.dev.sqlapi.query.PreparedSelectQuery;
+import com.p000ison.dev.sqlapi.query.RowView;
 import com.p000ison.dev.sqlapi.query.SelectQuery;
 import com.p000ison.dev.sqlapi.query.WhereQuery;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -42,6 +50,21 @@ public class DefaultSelectQuery<T extends TableObject> implements SelectQuery<T>
     private Database database;
     private List<DefaultOrderEntry> orderBy = new CopyOnWriteArrayList<DefaultOrderEntry>();
     private int[] limits;
+    /**
+     * The selected columns, null if all columns are selected
+     */
+    private List<Column> projection;
+    /**
+     * The column which is used for keyset pagination, null if the query is not paged
+     */
+    private Column pageKey;
+    private Object pageValue;
+    private boolean pageValuePrepared;
+    private int pageSize;
+    /**
+     * The built query, null if it has to be built again
+     */
+    private String query;
 
     public DefaultSelectQuery(Database database) {
         this.database = database;
@@ -50,17 +73,20 @@ public class DefaultSelectQuery<T extends TableObject> implements SelectQuery<T>
     @Override
     public synchronized SelectQuery<T> from(Class<T> object) {
         this.table = database.getRegisteredTable(object);
+        changed();
         return this;
     }
 
     @Override
     public synchronized SelectQuery<T> from(RegisteredTable table) {
         this.table = table;
+        changed();
         return this;
     }
 
     @Override
     public synchronized WhereQuery<T> where() {
+        changed();
         return whereQuery = new DefaultWhereQuery<T>(this);
     }
 
@@ -77,15 +103,34 @@ public class DefaultSelectQuery<T extends TableObject> implements SelectQuery<T>
     @Override
     public SelectQuery<T> orderByDescending(String order) {
         orderBy.add(new DefaultOrderEntry(order, true));
+        changed();
         return this;
     }
 
     @Override
     public SelectQuery<T> orderBy(String order) {
         orderBy.add(new DefaultOrderEntry(order, false));
+        changed();
         return this;
     }
 
+    @Override
+    public final synchronized CompiledQuery<T> compile() {
+        String query = getQuery();
+        if (query == null) {
+            throw new QueryException("The query is not prepared!");
+        }
+
+        List<Integer> prepared = new ArrayList<Integer>();
+        Object[] values = collectParameters(prepared);
+        int[] preparedIndexes = new int[prepared.size()];
+        for (int i = 0; i < preparedIndexes.length; i++) {
+            preparedIndexes[i] = prepared.get(i);
+        }
+
+        return new DefaultCompiledQuery<T>(database, query, table, getColumns(), values, preparedIndexes);
+    }
+
     protected synchronized DefaultWhereQuery<T> getWhereQuery() {
         return whereQuery;
     }
@@ -97,27 +142,100 @@ public class DefaultSelectQuery<T extends TableObject> implements SelectQuery<T>
             throw new QueryException("The query is not prepared!");
         }
 
-        PreparedSelectQuery<T> preparedQuery = database.createPreparedSelectQuery(getQuery(), table);
-        if (whereQuery != null) {
-            List<DefaultWhereComparator<T>> comparators = whereQuery.getComparators();
-            for (int i = 0; i < comparators.size(); i++) {
-                DefaultWhereComparator<T> comparator = comparators.get(i);
-                if (!comparator.isPrepared()) {
-                    preparedQuery.set(i, comparator.getExpectedValue());
-                }
+        PreparedSelectQuery<T> preparedQuery = database.createPreparedSelectQuery(query, table, getColumns());
+        List<Integer> prepared = new ArrayList<Integer>();
+        Object[] values = collectParameters(prepared);
+
+        int next = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (next < prepared.size() && prepared.get(next) == i) {
+                next++;
+                continue;
             }
+            preparedQuery.set(i, values[i]);
         }
 
         return preparedQuery;
     }
 
+    @Override
+    public synchronized SelectQuery<T> pageAfter(Column key, Object lastValue, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The size of a page must be greater than 0!");
+        }
+
+        pageKey = key;
+        pageValue = lastValue;
+        pageValuePrepared = false;
+        pageSize = size;
+        changed();
+        return this;
+    }
+
+    @Override
+    public synchronized Iterator<List<T>> pages(Column key, int size) {
+        Column oldKey = pageKey;
+        Object oldValue = pageValue;
+        int oldSize = pageSize;
+
+        try {
+            if (projection != null && !projection.contains(key)) {
+                throw new QueryException("The page key %s must be selected!", key.getName());
+            }
+
+            pageAfter(key, null, size);
+            CompiledQuery<T> first = compile();
+            if (first.getParameterCount() != 0) {
+                throw new QueryException("A query with prepared values can not be paged!");
+            }
+
+            pageValuePrepared = true;
+            changed();
+            CompiledQuery<T> next = compile();
+
+            return new DefaultPageIterator<T>(first, next, key, size);
+        } finally {
+            pageKey = oldKey;
+            pageValue = oldValue;
+            pageValuePrepared = false;
+            pageSize = oldSize;
+            changed();
+        }
+    }
+
+    /**
+     * Whether the query only selects the entries after the last value of the page key
+     */
+    private boolean isSeeking() {
+        return pageKey != null && (pageValue != null || pageValuePrepared);
+    }
+
+    /**
+     * Forgets the built query, because a part of it changed
+     */
+    synchronized void changed() {
+        query = null;
+    }
+
+    /**
+     * Gets the query. It is built once and reused until a part of it changes.
+     *
+     * @return The query or null if there is no table
+     */
     protected synchronized String getQuery() {
+        if (query == null) {
+            query = buildQuery();
+        }
+        return query;
+    }
+
+    private String buildQuery() {
         if (table == null) {
             return null;
         }
 
         StringBuilder query = new StringBuilder("SELECT ");
-        List<Column> columns = table.getRegisteredColumns();
+        List<Column> columns = getColumns();
 
         int end = columns.size() - 1;
         for (int i = 0; i < columns.size(); i++) {
@@ -129,29 +247,13 @@ public class DefaultSelectQuery<T extends TableObject> implements SelectQuery<T>
         }
 
         query.append(" FROM ").append(table.getName());
+        appendWhere(query);
 
-        if (getWhereQuery() != null) {
-            query.append(" WHERE ");
-            List<DefaultWhereComparator<T>> comparators = whereQuery.getComparators();
-
-            if (!comparators.isEmpty()) {
-                for (DefaultWhereComparator comparator : comparators) {
-                    query.append(comparator.getColumn()).append(comparator.getOperator()).append('?');
-
-                    if (comparator.isAnd()) {
-                        query.append(" AND ");
-                    } else if (comparator.isOr()) {
-                        query.append(" OR ");
-                    } else {
-                        break;
-                    }
-
-                }
-            }
-        }
-
-        if (!orderBy.isEmpty()) {
+        if (pageKey != null || !orderBy.isEmpty()) {
             query.append(" ORDER BY ");
+            if (pageKey != null) {
+                query.append(pageKey.getName()).append(',');
+            }
             for (DefaultOrderEntry entry : orderBy) {
                 if (entry.getOrder() != null) {
                     query.append(entry.getOrder());
@@ -167,7 +269,9 @@ public class DefaultSelectQuery<T extends TableObject> implements SelectQuery<T>
             query.deleteCharAt(query.length() - 1);
         }
 
-        if (limits != null) {
+        if (pageKey != null) {
+            query.append(" LIMIT ").append(pageSize);
+        } else if (limits != null) {
             query.append(" LIMIT ");
             if (limits.length == 1) {
                 query.append(limits[0]);
@@ -181,24 +285,227 @@ public class DefaultSelectQuery<T extends TableObject> implements SelectQuery<T>
         return query.toString();
     }
 
+    /**
+     * Checks whether the where part has any conditions
+     *
+     * @return Whether the where part is not empty
+     */
+    boolean hasWhere() {
+        List<DefaultWhereComparator<T>> comparators = whereQuery == null ? null : whereQuery.getComparators();
+        return comparators != null && !comparators.isEmpty();
+    }
+
+    /**
+     * Appends the where part including the key condition of a page
+     *
+     * @param query The query
+     */
+    void appendWhere(StringBuilder query) {
+        List<DefaultWhereComparator<T>> comparators = whereQuery == null ? null : whereQuery.getComparators();
+        boolean hasComparators = comparators != null && !comparators.isEmpty();
+
+        if (hasComparators || isSeeking()) {
+            query.append(" WHERE ");
+
+            if (hasComparators) {
+                if (isSeeking()) {
+                    query.append('(');
+                }
+
+                for (DefaultWhereComparator comparator : comparators) {
+                    query.append(comparator.getColumn());
+                    if (comparator.getOperator() == CompareOperator.IN) {
+                        query.append(" IN(");
+                        for (int i = 0; i < comparator.getParameterCount(); i++) {
+                            query.append(i == 0 ? "?" : ",?");
+                        }
+                        query.append(')');
+                    } else {
+                        query.append(comparator.getOperator()).append('?');
+                    }
+
+                    if (comparator.isAnd()) {
+                        query.append(" AND ");
+                    } else if (comparator.isOr()) {
+                        query.append(" OR ");
+                    } else {
+                        break;
+                    }
+
+                }
+
+                if (isSeeking()) {
+                    query.append(") AND ");
+                }
+            }
+
+            if (isSeeking()) {
+                query.append(pageKey.getName()).append(">?");
+            }
+        }
+    }
+
+    @Override
+    public synchronized SelectQuery<T> select(Column... columns) {
+        if (columns.length == 0) {
+            projection = null;
+        } else {
+            projection = Collections.unmodifiableList(new ArrayList<Column>(new LinkedHashSet<Column>(Arrays.asList(columns))));
+        }
+        changed();
+        return this;
+    }
+
+    @Override
+    public synchronized List<RowView> rows() {
+        String query = getQuery();
+        if (query == null) {
+            throw new QueryException("The query is not prepared!");
+        }
+
+        return database.selectRows(query, getValues(), getColumns());
+    }
+
+    /**
+     * Gets the selected columns in the order of the query
+     */
+    private List<Column> getColumns() {
+        return projection == null ? table.getRegisteredColumns() : projection;
+    }
+
+    @Override
+    public long count() {
+        Object count = aggregate("COUNT(*)");
+        return count == null ? 0 : ((Number) count).longValue();
+    }
+
+    @Override
+    public Number sum(Column column) {
+        return (Number) aggregate("SUM(" + column.getName() + ')');
+    }
+
+    @Override
+    public Object min(Column column) {
+        return aggregate("MIN(" + column.getName() + ')');
+    }
+
+    @Override
+    public Object max(Column column) {
+        return aggregate("MAX(" + column.getName() + ')');
+    }
+
+    @Override
+    public Double avg(Column column) {
+        Number average = (Number) aggregate("AVG(" + column.getName() + ')');
+        return average == null ? null : average.doubleValue();
+    }
+
+    @Override
+    public GroupedQuery<T> groupBy(Column group) {
+        return new DefaultGroupedQuery<T>(this, group);
+    }
+
+    private Object aggregate(String function) {
+        List<Object[]> rows = aggregate(function, null);
+        return rows.isEmpty() ? null : rows.get(0)[0];
+    }
+
+    /**
+     * Queries a aggregate function over the entries which match the where part
+     *
+     * @param function The function, for example COUNT(*)
+     * @param group    The column to group by or null
+     * @return The rows, every row contains the group (if there is one) and the value of the function
+     */
+    synchronized List<Object[]> aggregate(String function, Column group) {
+        if (table == null) {
+            throw new QueryException("The query is not prepared!");
+        }
+
+        StringBuilder query = new StringBuilder("SELECT ");
+        if (group != null) {
+            query.append(group.getName()).append(',');
+        }
+        query.append(function).append(" FROM ").append(table.getName());
+        appendWhere(query);
+
+        if (group != null) {
+            query.append(" GROUP BY ").append(group.getName());
+        }
+        query.append(';');
+
+        return database.selectValues(query.toString(), getValues(), group == null ? 1 : 2);
+    }
+
+    /**
+     * Gets the values of the where part
+     *
+     * @return The values
+     * @throws QueryException If there are prepared values
+     */
+    Object[] getValues() {
+        List<Integer> prepared = new ArrayList<Integer>();
+        Object[] values = collectParameters(prepared);
+        if (!prepared.isEmpty()) {
+            throw new QueryException("A query with prepared values can not be executed directly!");
+        }
+
+        return values;
+    }
+
+    /**
+     * Collects the values of the parameters in the order of the query
+     *
+     * @param preparedIndexes The indexes of the prepared parameters get added to this list, their values are null
+     * @return The values
+     */
+    private Object[] collectParameters(List<Integer> preparedIndexes) {
+        List<Object> values = new ArrayList<Object>();
+        if (whereQuery != null) {
+            for (DefaultWhereComparator<T> comparator : whereQuery.getComparators()) {
+                if (comparator.isPrepared()) {
+                    for (int i = 0; i < comparator.getParameterCount(); i++) {
+                        preparedIndexes.add(values.size());
+                        values.add(null);
+                    }
+                } else if (comparator.getOperator() == CompareOperator.IN) {
+                    values.addAll(Arrays.asList((Object[]) comparator.getExpectedValue()));
+                } else {
+                    values.add(comparator.getExpectedValue());
+                }
+            }
+        }
+
+        if (isSeeking()) {
+            if (pageValuePrepared) {
+                preparedIndexes.add(values.size());
+            }
+            values.add(pageValue);
+        }
+
+        return values.toArray();
+    }
+
     @Override
     public synchronized SelectQuery<T> limit(int max) {
         if (max < 1) {
             throw new IllegalArgumentException("The limit must be greater than 0!");
         }
         limits = new int[]{max};
+        changed();
         return this;
     }
 
     @Override
     public synchronized SelectQuery<T> limit(int from, int to) {
-        if (from > 0 || to > 0) {
+        if (from < 0) {
+            throw new IllegalArgumentException("The offset must not be negative!");
+        } else if (to < 1) {
             throw new IllegalArgumentException("The limit must be greater than 0!");
-        } else if (from > to) {
-            throw new IllegalArgumentException("The from limit must be less than the to limit!");
         }
 
         limits = new int[]{from, to};
+        changed();
         return this;
     }
 
@@ -208,6 +515,10 @@ public class DefaultSelectQuery<T extends TableObject> implements SelectQuery<T>
         this.whereQuery = null;
         this.orderBy = new ArrayList<DefaultOrderEntry>();
         this.limits = null;
+        this.pageKey = null;
+        this.pageValue = null;
+        this.projection = null;
+        changed();
         return this;
     }
 
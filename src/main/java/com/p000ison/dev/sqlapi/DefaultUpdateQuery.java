@@ -0,0 +1,113 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 13.01.13 11:52
+ */
+
+package com.p000ison.dev.sqlapi;
+
+import com.p000ison.dev.sqlapi.exception.QueryException;
+import com.p000ison.dev.sqlapi.query.PreparedQuery;
+import com.p000ison.dev.sqlapi.query.UpdateQuery;
+import com.p000ison.dev.sqlapi.query.WhereQuery;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A default update query which may work with your database engine
+ * <p/>
+ * <strong>Info:</strong>
+ * <p/>
+ * All Default... classes are pre-made classes which may already work with your database engine.
+ */
+class DefaultUpdateQuery<T extends TableObject> implements UpdateQuery<T> {
+
+    private final Database database;
+    private final RegisteredTable table;
+    /**
+     * Holds the where part
+     */
+    private final DefaultSelectQuery<T> filter;
+    private final Map<Column, Object> values = new LinkedHashMap<Column, Object>();
+    private boolean all;
+
+    DefaultUpdateQuery(Database database, RegisteredTable table) {
+        this.database = database;
+        this.table = table;
+        this.filter = new DefaultSelectQuery<T>(database);
+        filter.from(table);
+    }
+
+    @Override
+    public synchronized UpdateQuery<T> set(Column column, Object value) {
+        if (column.isID()) {
+            throw new QueryException("The id of %s can not be updated!", table.getName());
+        }
+
+        values.put(column, value);
+        return this;
+    }
+
+    @Override
+    public UpdateQuery<T> set(String column, Object value) {
+        Column registeredColumn = table.getColumn(column);
+        if (registeredColumn == null) {
+            throw new QueryException("The column %s does not exist in %s!", column, table.getName());
+        }
+
+        return set(registeredColumn, value);
+    }
+
+    @Override
+    public WhereQuery<T> where() {
+        return filter.where();
+    }
+
+    @Override
+    public synchronized UpdateQuery<T> all() {
+        all = true;
+        return this;
+    }
+
+    @Override
+    public synchronized int execute() {
+        if (values.isEmpty()) {
+            throw new QueryException("There are no columns to update in %s!", table.getName());
+        } else if (!all && !filter.hasWhere()) {
+            throw new QueryException("The update query of %s has no where part! Use all() to update all entries.", table.getName());
+        }
+
+        StringBuilder query = new StringBuilder("UPDATE ").append(table.getName()).append(" SET ");
+        for (Column column : values.keySet()) {
+            query.append(column.getName()).append("=?,");
+        }
+        query.deleteCharAt(query.length() - 1);
+        filter.appendWhere(query);
+        query.append(';');
+
+        PreparedQuery statement = database.createPreparedStatement(query.toString());
+        int i = 0;
+        for (Map.Entry<Column, Object> entry : values.entrySet()) {
+            statement.set(entry.getKey(), i++, entry.getValue());
+        }
+        for (Object value : filter.getValues()) {
+            statement.set(i++, value);
+        }
+
+        return database.executeBulkUpdate(table, statement, false);
+    }
+}
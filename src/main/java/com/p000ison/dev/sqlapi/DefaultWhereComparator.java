@@ -39,6 +39,10 @@ class DefaultWhereComparator<T extends TableObject> implements WhereComparator<T
     private Object expectedValue;
     private CompareOperator operator;
     private boolean prepared = false;
+    /**
+     * The amount of values of this comparator, only IN has more than one
+     */
+    private int parameterCount = 1;
 
     DefaultWhereComparator(DefaultSelectQuery<T> query, CompareOperator operator, String column, Object expectedValue) {
         this.query = query;
@@ -57,12 +61,14 @@ class DefaultWhereComparator<T extends TableObject> implements WhereComparator<T
     @Override
     public WhereQuery<T> or() {
         or = true;
+        query.changed();
         return query.getWhereQuery();
     }
 
     @Override
     public WhereQuery<T> and() {
         and = true;
+        query.changed();
         return query.getWhereQuery();
     }
 
@@ -94,4 +100,12 @@ class DefaultWhereComparator<T extends TableObject> implements WhereComparator<T
     public boolean isPrepared() {
         return prepared;
     }
+
+    protected int getParameterCount() {
+        return parameterCount;
+    }
+
+    void setParameterCount(int parameterCount) {
+        this.parameterCount = parameterCount;
+    }
 }
@@ -24,6 +24,7 @@ import com.p000ison.dev.sqlapi.query.WhereComparator;
 import com.p000ison.dev.sqlapi.query.WhereQuery;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -143,15 +144,53 @@ class DefaultWhereQuery<T extends TableObject> implements WhereQuery<T> {
         return addPreparedComparator(column, CompareOperator.GREATER_THAN);
     }
 
+    @Override
+    public WhereComparator<T> in(Column column, Collection<?> expected) {
+        return in(column.getName(), expected);
+    }
+
+    @Override
+    public WhereComparator<T> preparedIn(Column column, int amount) {
+        return preparedIn(column.getName(), amount);
+    }
+
+    @Override
+    public WhereComparator<T> in(String column, Collection<?> expected) {
+        if (expected.isEmpty()) {
+            throw new IllegalArgumentException("The expected values must not be empty!");
+        }
+
+        DefaultWhereComparator<T> comparator = new DefaultWhereComparator<T>(query, CompareOperator.IN, column, expected.toArray());
+        comparator.setParameterCount(expected.size());
+        comparators.add(comparator);
+        query.changed();
+        return comparator;
+    }
+
+    @Override
+    public WhereComparator<T> preparedIn(String column, int amount) {
+        if (amount < 1) {
+            throw new IllegalArgumentException("The amount of values must be greater than 0!");
+        }
+
+        DefaultWhereComparator<T> comparator = new DefaultWhereComparator<T>(query, CompareOperator.IN, column, true);
+        comparator.setParameterCount(amount);
+        comparators.add(comparator);
+        query.changed();
+        return comparator;
+    }
+
     private WhereComparator<T> addComparator(String column, CompareOperator compareOperator, Object expected) {
         DefaultWhereComparator<T> comparator = new DefaultWhereComparator<T>(query, compareOperator, column, expected);
         comparators.add(comparator);
+        query.changed();
         return comparator;
     }
 
     private WhereComparator<T> addPreparedComparator(String column, CompareOperator compareOperator) {
         DefaultWhereComparator<T> comparator = new DefaultWhereComparator<T>(query, compareOperator, column, true);
         comparators.add(comparator);
+        query.changed();
         return comparator;
     }
 
@@ -0,0 +1,153 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 08.01.13 19:30
+ */
+
+package com.p000ison.dev.sqlapi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents a EntityCache
+ * <p/>
+ * Holds the entries of a table by their id. If the cache is full the least recently used entry gets evicted. The cache
+ * is kept up to date by the write methods of the {@link Database}, but changes which are made by other programs or by
+ * {@link Database#executeDirectUpdate(String)} are not noticed.
+ */
+public final class EntityCache {
+    private final int maxSize;
+    private final Map<Long, TableObject> entries;
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), evictions = new AtomicLong();
+
+    EntityCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The size of the cache must be greater than 0!");
+        }
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Long, TableObject>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, TableObject> eldest) {
+                if (size() > EntityCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets a cached entry
+     *
+     * @param id The id of the entry
+     * @return The entry or null if it is not cached
+     */
+    TableObject get(long id) {
+        TableObject tableObject;
+        synchronized (entries) {
+            tableObject = entries.get(id);
+        }
+
+        if (tableObject == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return tableObject;
+    }
+
+    void put(long id, TableObject tableObject) {
+        synchronized (entries) {
+            entries.put(id, tableObject);
+        }
+    }
+
+    void remove(long id) {
+        synchronized (entries) {
+            entries.remove(id);
+        }
+    }
+
+    /**
+     * Removes all entries
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Gets how often a entry was found in the cache
+     *
+     * @return The amount of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets how often a entry was not found in the cache
+     *
+     * @return The amount of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets how many entries were removed because the cache was full
+     *
+     * @return The amount of evictions
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Gets the ratio of the hits to all lookups
+     *
+     * @return The hit ratio between 0 and 1
+     */
+    public double getHitRatio() {
+        long hits = getHits(), lookups = hits + getMisses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityCache{" +
+                "size=" + size() +
+                ", maxSize=" + maxSize +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", evictions=" + getEvictions() +
+                '}';
+    }
+}
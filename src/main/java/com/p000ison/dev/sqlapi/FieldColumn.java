@@ -20,6 +20,7 @@
 package com.p000ison.dev.sqlapi;
 
 import com.p000ison.dev.sqlapi.annotation.DatabaseColumn;
+import com.p000ison.dev.sqlapi.codec.ColumnCodec;
 import com.p000ison.dev.sqlapi.exception.QueryException;
 
 import java.lang.reflect.Field;
@@ -32,13 +33,39 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 final class FieldColumn extends Column {
 
-    private Field field;
-    private DatabaseColumn annotation;
+    /**
+     * The kinds of fields which need special handling, so we do not have to compare the type every time
+     */
+    private static final int OTHER = 0, INT = 1, LONG = 2, DOUBLE = 3, ATOMIC_BOOLEAN = 4, ATOMIC_INTEGER = 5, ATOMIC_LONG = 6;
+
+    private final Field field;
+    private final DatabaseColumn annotation;
+    private final int kind;
+    private final ColumnCodec codec;
 
     FieldColumn(Field field, DatabaseColumn annotation) {
         this.field = field;
         field.setAccessible(true);
         this.annotation = annotation;
+        this.kind = getKind(field.getType());
+        this.codec = getCodec(annotation.codec());
+    }
+
+    private static int getKind(Class<?> type) {
+        if (type == int.class) {
+            return INT;
+        } else if (type == long.class) {
+            return LONG;
+        } else if (type == double.class) {
+            return DOUBLE;
+        } else if (type == AtomicBoolean.class) {
+            return ATOMIC_BOOLEAN;
+        } else if (type == AtomicInteger.class) {
+            return ATOMIC_INTEGER;
+        } else if (type == AtomicLong.class) {
+            return ATOMIC_LONG;
+        }
+        return OTHER;
     }
 
     @Override
@@ -81,6 +108,26 @@ final class FieldColumn extends Column {
         return annotation.unique();
     }
 
+    @Override
+    public ColumnCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public boolean isCompressing() {
+        return annotation.compress();
+    }
+
+    @Override
+    public boolean isModification() {
+        return annotation.modification();
+    }
+
+    @Override
+    public boolean isCounter() {
+        return annotation.counter();
+    }
+
     @Override
     public boolean isSaveInputAfterLoading() {
         return annotation.saveValueAfterLoading();
@@ -89,41 +136,43 @@ final class FieldColumn extends Column {
     @Override
     public void setValue(TableObject tableObject, Object object) {
         try {
-            Class type = getType();
-            if (type == AtomicBoolean.class) {
-                if (!(object instanceof Boolean)) {
-                    throw new QueryException("The selected boolean was not a Boolean and I was unable to create a AtomicBoolean!");
-                }
-                AtomicBoolean atomicBoolean = (AtomicBoolean) getValue(tableObject);
-                if (atomicBoolean == null) {
-                    field.set(tableObject, new AtomicBoolean((Boolean) object));
-                } else {
-                    atomicBoolean.set((Boolean) object);
-                }
-            } else if (type == AtomicInteger.class) {
-                if (!(object instanceof Integer)) {
-                    throw new QueryException("The selected integer was not a Integer and I was unable to create a AtomicInteger!");
-                }
-                AtomicInteger atomicInteger = (AtomicInteger) getValue(tableObject);
-                if (atomicInteger == null) {
-                    field.set(tableObject, new AtomicInteger((Integer) object));
-                } else {
-                    atomicInteger.set((Integer) object);
-                }
-            } else if (type == AtomicLong.class) {
-                if (!(object instanceof Long)) {
-                    throw new QueryException("The selected long was not a Long and I was unable to create a AtomicLong!");
-                }
-                AtomicLong atomicLong = ((AtomicLong) getValue(tableObject));
-                if (atomicLong == null) {
-                    field.set(tableObject, new AtomicLong((Long) object));
-                } else {
-                    atomicLong.set((Long) object);
-                }
-            } else {
-                field.set(tableObject, object);
+            switch (kind) {
+                case ATOMIC_BOOLEAN:
+                    if (!(object instanceof Boolean)) {
+                        throw new QueryException("The selected boolean was not a Boolean and I was unable to create a AtomicBoolean!");
+                    }
+                    AtomicBoolean atomicBoolean = (AtomicBoolean) field.get(tableObject);
+                    if (atomicBoolean == null) {
+                        field.set(tableObject, new AtomicBoolean((Boolean) object));
+                    } else {
+                        atomicBoolean.set((Boolean) object);
+                    }
+                    break;
+                case ATOMIC_INTEGER:
+                    if (!(object instanceof Integer)) {
+                        throw new QueryException("The selected integer was not a Integer and I was unable to create a AtomicInteger!");
+                    }
+                    AtomicInteger atomicInteger = (AtomicInteger) field.get(tableObject);
+                    if (atomicInteger == null) {
+                        field.set(tableObject, new AtomicInteger((Integer) object));
+                    } else {
+                        atomicInteger.set((Integer) object);
+                    }
+                    break;
+                case ATOMIC_LONG:
+                    if (!(object instanceof Long)) {
+                        throw new QueryException("The selected long was not a Long and I was unable to create a AtomicLong!");
+                    }
+                    AtomicLong atomicLong = (AtomicLong) field.get(tableObject);
+                    if (atomicLong == null) {
+                        field.set(tableObject, new AtomicLong((Long) object));
+                    } else {
+                        atomicLong.set((Long) object);
+                    }
+                    break;
+                default:
+                    field.set(tableObject, object);
             }
-
         } catch (IllegalAccessException e) {
             throw new QueryException(e);
         }
@@ -138,6 +187,87 @@ final class FieldColumn extends Column {
         }
     }
 
+    @Override
+    public int getInt(TableObject tableObject) {
+        if (kind != INT) {
+            return super.getInt(tableObject);
+        }
+
+        try {
+            return field.getInt(tableObject);
+        } catch (IllegalAccessException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    @Override
+    public long getLong(TableObject tableObject) {
+        if (kind != LONG) {
+            return super.getLong(tableObject);
+        }
+
+        try {
+            return field.getLong(tableObject);
+        } catch (IllegalAccessException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    @Override
+    public double getDouble(TableObject tableObject) {
+        if (kind != DOUBLE) {
+            return super.getDouble(tableObject);
+        }
+
+        try {
+            return field.getDouble(tableObject);
+        } catch (IllegalAccessException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    @Override
+    public void setInt(TableObject tableObject, int value) {
+        if (kind != INT) {
+            super.setInt(tableObject, value);
+            return;
+        }
+
+        try {
+            field.setInt(tableObject, value);
+        } catch (IllegalAccessException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    @Override
+    public void setLong(TableObject tableObject, long value) {
+        if (kind != LONG) {
+            super.setLong(tableObject, value);
+            return;
+        }
+
+        try {
+            field.setLong(tableObject, value);
+        } catch (IllegalAccessException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    @Override
+    public void setDouble(TableObject tableObject, double value) {
+        if (kind != DOUBLE) {
+            super.setDouble(tableObject, value);
+            return;
+        }
+
+        try {
+            field.setDouble(tableObject, value);
+        } catch (IllegalAccessException e) {
+            throw new QueryException(e);
+        }
+    }
+
     @Override
     public String toString() {
         return "FieldColumn{" +
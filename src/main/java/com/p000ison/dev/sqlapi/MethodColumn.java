@@ -21,6 +21,7 @@ package com.p000ison.dev.sqlapi;
 
 import com.p000ison.dev.sqlapi.annotation.DatabaseColumnGetter;
 import com.p000ison.dev.sqlapi.annotation.DatabaseColumnSetter;
+import com.p000ison.dev.sqlapi.codec.ColumnCodec;
 import com.p000ison.dev.sqlapi.exception.QueryException;
 import com.p000ison.dev.sqlapi.exception.TableBuildingException;
 
@@ -29,11 +30,19 @@ import java.lang.reflect.Method;
 
 /**
  * Implementation for methods of {@link Column}
+ * <p/>
+ * The primitive accessors like {@link #getInt(TableObject)} use the defaults of {@link Column}, because
+ * {@link Method#invoke(Object, Object...)} boxes the values anyway. Use fields for columns which are read often.
  */
 final class MethodColumn extends Column {
 
     private Method getter, setter;
     private DatabaseColumnSetter annotation;
+    /**
+     * The name of the column, so we do not need to look up the annotation every time
+     */
+    private String name;
+    private ColumnCodec codec;
 
     MethodColumn() {
     }
@@ -58,6 +67,7 @@ final class MethodColumn extends Column {
         }
         this.getter = getter;
         this.getter.setAccessible(true);
+        this.name = getter.getAnnotation(DatabaseColumnGetter.class).databaseName();
     }
 
     public Method getSetter() {
@@ -81,10 +91,14 @@ final class MethodColumn extends Column {
 
         this.setter = setter;
         setter.setAccessible(true);
+        if (name == null) {
+            this.name = setter.getAnnotation(DatabaseColumnSetter.class).databaseName();
+        }
     }
 
     void setAnnotation(DatabaseColumnSetter annotation) {
         this.annotation = annotation;
+        this.codec = getCodec(annotation.codec());
     }
 
     public boolean isNull() {
@@ -115,13 +129,7 @@ final class MethodColumn extends Column {
 
     @Override
     public String getName() {
-        if (getter != null) {
-            return getter.getAnnotation(DatabaseColumnGetter.class).databaseName();
-        }
-        if (setter != null) {
-            return setter.getAnnotation(DatabaseColumnSetter.class).databaseName();
-        }
-        return null;
+        return name;
     }
 
     @Override
@@ -165,6 +173,26 @@ final class MethodColumn extends Column {
         return annotation.id();
     }
 
+    @Override
+    public ColumnCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public boolean isCompressing() {
+        return annotation.compress();
+    }
+
+    @Override
+    public boolean isModification() {
+        return annotation.modification();
+    }
+
+    @Override
+    public boolean isCounter() {
+        return annotation.counter();
+    }
+
     @Override
     public boolean isSaveInputAfterLoading() {
         return annotation.saveValueAfterLoading();
@@ -19,16 +19,26 @@
 
 package com.p000ison.dev.sqlapi;
 
+import com.p000ison.dev.sqlapi.annotation.DatabaseTable;
 import com.p000ison.dev.sqlapi.exception.QueryException;
 import com.p000ison.dev.sqlapi.exception.RegistrationException;
 import com.p000ison.dev.sqlapi.exception.TableBuildingException;
+import com.p000ison.dev.sqlapi.query.CompiledQuery;
 import com.p000ison.dev.sqlapi.query.PreparedQuery;
 
 import java.io.Serializable;
 import java.lang.reflect.Constructor;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
 
 /**
  * Used to register TableObjects. Holds the columns, the registered constructor, some prepared statements and of the class
@@ -39,16 +49,138 @@ public class RegisteredTable {
     private Class<? extends TableObject> registeredClass;
     private List<Column> registeredColumns;
     private RegisteredConstructor constructor;
-    private PreparedQuery updateStatement, insertStatement, deleteStatement;
-    private Queue<StoredTableObjectValue> storedColumnValues = new LinkedList<StoredTableObjectValue>();
+    private PreparedQuery updateStatement, insertStatement, deleteStatement, upsertStatement;
+    /**
+     * The objects which were added to the insert batch, in the same order as the batch
+     */
+    private List<TableObject> pendingInserts = new ArrayList<TableObject>();
+    private Queue<StoredTableObjectValue> storedColumnValues = new ConcurrentLinkedQueue<StoredTableObjectValue>();
+    /**
+     * Guards the prepared statements of this table, so work on other tables does not have to wait
+     */
+    private final Lock lock = new ReentrantLock();
+    /**
+     * The snapshots of the entries, null if changes are not tracked
+     */
+    private final ChangeTracker changeTracker;
+    /**
+     * The objects which were loaded with only some columns. They stay marked even if their snapshots are forgotten.
+     */
+    private final WeakIdentityMap<TableObject, Boolean> projected = new WeakIdentityMap<TableObject, Boolean>();
+    /**
+     * The update statements which only write some columns, mapped by the bitmask of the columns
+     */
+    private final Map<Long, PreparedQuery> partialUpdateStatements = new HashMap<Long, PreparedQuery>();
+    /**
+     * The kinds of the types of the columns in the order of the registered columns
+     */
+    private final ColumnType[] columnTypes;
+    /**
+     * The cached entries, null if the table has no cache
+     */
+    private final EntityCache cache;
+    private CompiledQuery<? extends TableObject> selectByIdQuery;
+    /**
+     * The queries which select the entries with some ids, mapped by the amount of ids
+     */
+    private final Map<Integer, CompiledQuery<? extends TableObject>> selectByIdsQueries = new HashMap<Integer, CompiledQuery<? extends TableObject>>();
+    /**
+     * Counts the writes to this table, so cached results can tell whether they are still up to date
+     */
+    private final AtomicLong modifications = new AtomicLong();
+    /**
+     * The column which holds the time or version of the last modification, null if there is none
+     */
+    private final Column modificationColumn;
+    /**
+     * The bitmask of the counter columns, the bit n stands for the column at the index n
+     */
+    private final long counterColumns;
+    /**
+     * The statements which add a delta to a counter column
+     */
+    private final Map<Column, PreparedQuery> incrementStatements = new HashMap<Column, PreparedQuery>();
 
     RegisteredTable(String name, Class<? extends TableObject> registeredClass, List<Column> registeredColumns, Constructor<? extends TableObject> constructor) {
         this.name = name;
         this.registeredClass = registeredClass;
         this.registeredColumns = registeredColumns;
+        this.columnTypes = new ColumnType[registeredColumns.size()];
+        for (int i = 0; i < columnTypes.length; i++) {
+            columnTypes[i] = registeredColumns.get(i).getColumnType();
+        }
         if (constructor != null) {
             this.constructor = new RegisteredConstructor(constructor);
         }
+
+        DatabaseTable annotation = registeredClass.getAnnotation(DatabaseTable.class);
+        if (annotation != null && annotation.trackChanges()) {
+            if (registeredColumns.size() > ChangeTracker.MAX_COLUMNS) {
+                Database.log(Level.WARNING, "The table %s has more than %s columns, changes will not be tracked!", name, ChangeTracker.MAX_COLUMNS);
+                this.changeTracker = null;
+            } else {
+                this.changeTracker = new ChangeTracker(registeredColumns);
+            }
+        } else {
+            this.changeTracker = null;
+        }
+
+        this.cache = annotation != null && annotation.cacheSize() > 0 ? new EntityCache(annotation.cacheSize()) : null;
+
+        Column modificationColumn = null;
+        long counterColumns = 0;
+        for (int i = 0; i < registeredColumns.size(); i++) {
+            Column column = registeredColumns.get(i);
+            if (column.isCounter()) {
+                counterColumns |= getCounterBit(column, i);
+            }
+
+            if (!column.isModification()) {
+                continue;
+            }
+
+            if (modificationColumn != null) {
+                throw new TableBuildingException("The table %s has more than one modification column!", name);
+            }
+
+            switch (column.getColumnType()) {
+                case PRIMITIVE_INT:
+                case INTEGER:
+                case ATOMIC_INTEGER:
+                case PRIMITIVE_LONG:
+                case LONG:
+                case ATOMIC_LONG:
+                case DATE:
+                case TIMESTAMP:
+                    modificationColumn = column;
+                    break;
+                default:
+                    throw new TableBuildingException("The modification column %s of %s must be a number or a date!", column.getName(), name);
+            }
+        }
+        this.modificationColumn = modificationColumn;
+        this.counterColumns = counterColumns;
+    }
+
+    /**
+     * Checks the counter column and gets its bit for the bitmasks of the changed columns
+     */
+    private long getCounterBit(Column column, int index) {
+        if (column.isID() || column.isModification()) {
+            throw new TableBuildingException("The counter column %s of %s can not be the id or the modification column!", column.getName(), name);
+        }
+
+        switch (column.getColumnType()) {
+            case PRIMITIVE_INT:
+            case INTEGER:
+            case ATOMIC_INTEGER:
+            case PRIMITIVE_LONG:
+            case LONG:
+            case ATOMIC_LONG:
+                return index < ChangeTracker.MAX_COLUMNS ? 1L << index : 0;
+            default:
+                throw new TableBuildingException("The counter column %s of %s must be a int or a long!", column.getName(), name);
+        }
     }
 
     public boolean isRegistered(TableObject obj) {
@@ -65,6 +197,16 @@ public class RegisteredTable {
         return null;
     }
 
+    /**
+     * Gets the column which holds the time or version of the last modification
+     *
+     * @return The column or null if the table has none
+     * @see com.p000ison.dev.sqlapi.annotation.DatabaseColumn#modification()
+     */
+    public Column getModificationColumn() {
+        return modificationColumn;
+    }
+
     public Column getIDColumn() {
         for (Column column : registeredColumns) {
             if (column.isID()) {
@@ -78,6 +220,16 @@ public class RegisteredTable {
         return registeredColumns;
     }
 
+    /**
+     * Gets the kinds of the types of the columns. The kind at the index n belongs to the column at the index n of
+     * {@link #getRegisteredColumns()}.
+     *
+     * @return The kinds of the column types
+     */
+    public ColumnType[] getColumnTypes() {
+        return columnTypes;
+    }
+
     public boolean isRegisteredClass(Class<? extends TableObject> registeredClass) {
         return this.registeredClass.equals(registeredClass);
     }
@@ -107,16 +259,32 @@ public class RegisteredTable {
         prepareDeleteStatement(database);
         prepareInsertStatement(database);
         prepareUpdateStatement(database);
+        prepareUpsertStatement(database);
     }
 
     void prepareUpdateStatement(Database database) {
+        updateStatement = database.createPreparedStatement(buildUpdateQuery(ChangeTracker.ALL_COLUMNS));
+    }
+
+    /**
+     * Builds a update query which writes the columns in the bitmask
+     *
+     * @param columns The bitmask of the columns, the bit n stands for the column at the index n
+     * @return The query
+     */
+    private String buildUpdateQuery(long columns) {
         StringBuilder query = new StringBuilder("UPDATE ").append(getName()).append(" SET ");
         Column id = null;
-        for (Column column : getRegisteredColumns()) {
+        List<Column> registeredColumns = getRegisteredColumns();
+        for (int i = 0; i < registeredColumns.size(); i++) {
+            Column column = registeredColumns.get(i);
             if (column.isID()) {
                 id = column;
                 continue;
             }
+            if ((columns & 1L << i) == 0 || column.isCounter()) {
+                continue;
+            }
             query.append(column.getName()).append("=?,");
         }
 
@@ -124,10 +292,15 @@ public class RegisteredTable {
             throw new TableBuildingException("The table %s does not have an id!", getName());
         }
 
-        query.deleteCharAt(query.length() - 1);
+        if (query.charAt(query.length() - 1) == ',') {
+            query.deleteCharAt(query.length() - 1);
+        } else {
+            //only counters, which are never updated this way
+            query.append(id.getName()).append('=').append(id.getName());
+        }
         query.append(" WHERE ").append(id.getName()).append("=?");
         query.append(';');
-        updateStatement = database.createPreparedStatement(query.toString());
+        return query.toString();
     }
 
     void prepareDeleteStatement(Database database) {
@@ -139,10 +312,24 @@ public class RegisteredTable {
     }
 
     void prepareInsertStatement(Database database) {
+        insertStatement = database.createPreparedInsertStatement(this);
+    }
+
+    /**
+     * Builds the query which inserts a entry with all columns except the id
+     *
+     * @return The query
+     */
+    String buildInsertQuery() {
         StringBuilder query = new StringBuilder();
         Column id = getIDColumn();
         query.append("INSERT INTO ").append(getName()).append(" (");
 
+        if (getRegisteredColumns().size() == 1) {
+            //the id is the only column, so it gets generated
+            return query.append(id.getName()).append(") VALUES (NULL);").toString();
+        }
+
         for (Column column : getRegisteredColumns()) {
             if (column.equals(id)) {
                 continue;
@@ -157,13 +344,289 @@ public class RegisteredTable {
         query.deleteCharAt(query.length() - 1);
         query.append(");");
 
-        insertStatement = database.createPreparedStatement(query.toString());
+        return query.toString();
+    }
+
+    void prepareUpsertStatement(Database database) {
+        if (getIDColumn() == null) {
+            throw new TableBuildingException("The table %s does not have an id!", getName());
+        }
+
+        upsertStatement = database.createPreparedStatement(database.buildUpsertQuery(this, true));
     }
 
     public PreparedQuery getPreparedUpdateStatement() {
         return updateStatement;
     }
 
+    /**
+     * Gets the update statement which only writes the columns in the bitmask. It takes the values of these columns in
+     * the order of {@link #getRegisteredColumns()} and the id as last value. The lock of this table must be held.
+     *
+     * @param database The database
+     * @param columns  The bitmask of the columns, the bit n stands for the column at the index n
+     * @return The update statement
+     */
+    PreparedQuery getPreparedUpdateStatement(Database database, long columns) {
+        if (columns == ChangeTracker.ALL_COLUMNS) {
+            return updateStatement;
+        }
+
+        PreparedQuery statement = partialUpdateStatements.get(columns);
+        if (statement == null) {
+            statement = database.createPreparedStatement(buildUpdateQuery(columns));
+            partialUpdateStatements.put(columns, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Gets the statement which adds a delta to a counter column. It takes the delta and the id. The lock of this table
+     * must be held.
+     *
+     * @param database The database
+     * @param column   The counter column
+     * @return The statement
+     */
+    PreparedQuery getPreparedIncrementStatement(Database database, Column column) {
+        PreparedQuery statement = incrementStatements.get(column);
+        if (statement == null) {
+            StringBuilder query = new StringBuilder("UPDATE ").append(getName()).append(" SET ");
+            query.append(column.getName()).append('=').append(column.getName()).append("+? WHERE ");
+            query.append(getIDColumn().getName()).append("=?;");
+
+            statement = database.createPreparedStatement(query.toString());
+            incrementStatements.put(column, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Gets the update statements which only write some columns. The lock of this table must be held.
+     *
+     * @return The partial update statements
+     */
+    Collection<PreparedQuery> getPreparedPartialUpdateStatements() {
+        return partialUpdateStatements.values();
+    }
+
+    /**
+     * Checks whether the values of the entries are remembered, so updates only write the changed columns.
+     *
+     * @return Whether changes are tracked
+     * @see DatabaseTable#trackChanges()
+     */
+    public boolean isTrackingChanges() {
+        return changeTracker != null;
+    }
+
+    /**
+     * Remembers the values of a entry which were read from the database. Does nothing if changes are not tracked.
+     *
+     * @param tableObject The object which got the values
+     * @param values      The values in the order of {@link #getRegisteredColumns()}
+     */
+    public void takeSnapshot(TableObject tableObject, Object[] values) {
+        if (changeTracker != null) {
+            changeTracker.snapshot(tableObject, values, null);
+        }
+    }
+
+    /**
+     * Remembers that a object was loaded with only some columns. If changes are tracked, updates only write the loaded
+     * columns as long as the object has its snapshot, otherwise the object can not be saved.
+     *
+     * @param tableObject The object
+     * @param values      The values in the order of {@link #getRegisteredColumns()}, the values of the columns which
+     *                    were not loaded are ignored. Null if changes are not tracked.
+     * @param unloaded    The indexes of the columns which were not loaded
+     */
+    public void takePartialSnapshot(TableObject tableObject, Object[] values, int[] unloaded) {
+        if (changeTracker != null) {
+            changeTracker.snapshot(tableObject, values, unloaded);
+        }
+        projected.put(tableObject, Boolean.TRUE);
+    }
+
+    /**
+     * Checks whether the object was loaded with only some columns
+     *
+     * @param tableObject The object
+     * @return Whether the object is partially loaded
+     */
+    public boolean isPartial(TableObject tableObject) {
+        return projected.containsKey(tableObject);
+    }
+
+    /**
+     * Makes sure all columns of the object can be written
+     *
+     * @param tableObject The object
+     * @throws QueryException If the object was loaded with only some columns
+     */
+    void checkComplete(TableObject tableObject) {
+        if (isPartial(tableObject)) {
+            throw new QueryException("The entry of %s was loaded with only some columns, so not all columns can be written!", getName());
+        }
+    }
+
+    void takeSnapshot(TableObject tableObject) {
+        if (changeTracker != null) {
+            changeTracker.snapshot(tableObject);
+        }
+    }
+
+    boolean hasSnapshot(TableObject tableObject) {
+        return changeTracker != null && changeTracker.hasSnapshot(tableObject);
+    }
+
+    /**
+     * Gets the columns which changed since the last snapshot of the object
+     *
+     * @param tableObject The object
+     * @return A bitmask of the changed columns without the counters, 0 if nothing changed or -1 for all columns
+     */
+    long getChangedColumns(TableObject tableObject) {
+        if (changeTracker == null) {
+            return ChangeTracker.ALL_COLUMNS;
+        }
+
+        long changed = changeTracker.getChangedColumns(tableObject);
+        //counters are written by their deltas
+        return changed == ChangeTracker.ALL_COLUMNS ? changed : changed & ~counterColumns;
+    }
+
+    void forgetSnapshot(TableObject tableObject) {
+        if (changeTracker != null) {
+            changeTracker.forget(tableObject);
+        }
+    }
+
+    /**
+     * Gets the cache of the entries of this table
+     *
+     * @return The cache or null if the table has no cache
+     * @see DatabaseTable#cacheSize()
+     */
+    public EntityCache getCache() {
+        return cache;
+    }
+
+    TableObject getCached(long id) {
+        return cache == null ? null : cache.get(id);
+    }
+
+    void cache(TableObject tableObject) {
+        //partially loaded objects would be returned as complete entries
+        if (cache != null && !isPartial(tableObject)) {
+            cache.put(getIDColumn().getLong(tableObject), tableObject);
+        }
+    }
+
+    /**
+     * Caches a loaded entry, unless the table was written since the entry was read. Then the entry might already be
+     * outdated or deleted.
+     *
+     * @param tableObject  The entry
+     * @param modification The modification count before the entry was read
+     */
+    void cache(TableObject tableObject, long modification) {
+        if (cache == null) {
+            return;
+        }
+
+        //writes change the count and the cache while holding the lock
+        lock.lock();
+        try {
+            if (getModificationCount() == modification) {
+                cache(tableObject);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void uncache(TableObject tableObject) {
+        if (cache != null) {
+            cache.remove(getIDColumn().getLong(tableObject));
+        }
+    }
+
+    /**
+     * Forgets the cached entries, because the entries in the database might not match them anymore
+     */
+    void clearCache() {
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Forgets the snapshots and the cached entries, because the entries in the database might not match them anymore
+     */
+    void invalidate() {
+        clearSnapshots();
+        if (cache != null) {
+            cache.clear();
+        }
+        markModified();
+    }
+
+    /**
+     * Gets the amount of writes to this table. If the count changed since a result was read, the result might be outdated.
+     *
+     * @return The amount of writes
+     */
+    public long getModificationCount() {
+        return modifications.get();
+    }
+
+    void markModified() {
+        modifications.incrementAndGet();
+    }
+
+    /**
+     * Gets the query which selects a entry by its id. It takes the id as only value.
+     *
+     * @param database The database
+     * @param <T>      The type of this table
+     * @return The query
+     */
+    @SuppressWarnings("unchecked")
+    synchronized <T extends TableObject> CompiledQuery<T> getSelectByIdQuery(Database database) {
+        if (selectByIdQuery == null) {
+            selectByIdQuery = database.<T>select().from(this).where().preparedEquals(getIDColumn()).select().compile();
+        }
+        return (CompiledQuery<T>) selectByIdQuery;
+    }
+
+    /**
+     * Gets the query which selects the entries with some ids. It takes the ids as values.
+     *
+     * @param database The database
+     * @param amount   The amount of ids
+     * @param <T>      The type of this table
+     * @return The query
+     */
+    @SuppressWarnings("unchecked")
+    synchronized <T extends TableObject> CompiledQuery<T> getSelectByIdsQuery(Database database, int amount) {
+        CompiledQuery<? extends TableObject> query = selectByIdsQueries.get(amount);
+        if (query == null) {
+            query = database.<T>select().from(this).where().preparedIn(getIDColumn(), amount).select().compile();
+            selectByIdsQueries.put(amount, query);
+        }
+        return (CompiledQuery<T>) query;
+    }
+
+    /**
+     * Forgets all snapshots, so the next updates write all columns again
+     */
+    public void clearSnapshots() {
+        if (changeTracker != null) {
+            changeTracker.clear();
+        }
+    }
+
     /**
      * Registers a constructor which will be used to build the objects, just pass for example: "test", 5 in it to
      * find a constructor with the parameters String and int.
@@ -210,6 +673,37 @@ public class RegisteredTable {
         return insertStatement;
     }
 
+    /**
+     * Gets the statement which inserts or updates a entry. It takes the values of all columns (including the id) in the
+     * order of {@link #getRegisteredColumns()}.
+     *
+     * @return The upsert statement
+     */
+    public PreparedQuery getPreparedUpsertStatement() {
+        return upsertStatement;
+    }
+
+    /**
+     * Remembers a object which was added to the insert batch, so it gets its id once the batch is executed.
+     * The lock of this table must be held.
+     *
+     * @param tableObject The object
+     */
+    void addPendingInsert(TableObject tableObject) {
+        pendingInserts.add(tableObject);
+    }
+
+    /**
+     * Gets and clears the objects which were added to the insert batch. The lock of this table must be held.
+     *
+     * @return The objects in the order of the batch
+     */
+    List<TableObject> pollPendingInserts() {
+        List<TableObject> inserts = pendingInserts;
+        pendingInserts = new ArrayList<TableObject>();
+        return inserts;
+    }
+
     public void storeColumnValue(Column column, Object value, TableObject tableObject) {
         storedColumnValues.add(new StoredTableObjectValue(tableObject, value, column));
     }
@@ -230,6 +724,16 @@ public class RegisteredTable {
         return deleteStatement;
     }
 
+    /**
+     * Gets the lock which must be held while using the prepared statements of this table. Since every
+     * {@link Database} registers its own tables the lock is only shared by work on this table of this database.
+     *
+     * @return The lock of this table
+     */
+    public Lock getLock() {
+        return lock;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -249,24 +753,12 @@ public class RegisteredTable {
         updateStatement.close();
         insertStatement.close();
         deleteStatement.close();
-    }
-
-    PreparedQuery createFullInsertStatement(Database database) {
-        StringBuilder query = new StringBuilder();
-        query.append("INSERT INTO ").append(getName()).append(" (");
-
-        for (Column column : getRegisteredColumns()) {
-            query.append(column.getName()).append(',');
+        upsertStatement.close();
+        for (PreparedQuery statement : partialUpdateStatements.values()) {
+            statement.close();
         }
-
-        query.deleteCharAt(query.length() - 1);
-        query.append(") VALUES (");
-        for (int i = 0; i < getRegisteredColumns().size(); i++) {
-            query.append("?,");
+        for (PreparedQuery statement : incrementStatements.values()) {
+            statement.close();
         }
-        query.deleteCharAt(query.length() - 1);
-        query.append(");");
-
-        return database.createPreparedStatement(query.toString());
     }
 }
@@ -0,0 +1,37 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 03.01.13 16:50
+ */
+
+package com.p000ison.dev.sqlapi;
+
+/**
+ * Represents work which runs in a transaction, see {@link Database#inTransaction(Transaction)}
+ *
+ * @param <T> The type of the result
+ */
+public interface Transaction<T> {
+
+    /**
+     * Runs the work. Everything which is done with the database in this thread is committed once this returns. If this
+     * throws an exception everything gets rolled back.
+     *
+     * @param database The database
+     * @return The result
+     */
+    T execute(Database database);
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 15.01.13 09:30
+ */
+
+package com.p000ison.dev.sqlapi;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps objects by their identity to values. The objects are only weakly referenced, so a value gets removed once its
+ * object was collected. The equals method of the objects is not used, because two objects of the same entry are equal
+ * for most tables.
+ *
+ * @param <K> The type of the objects
+ * @param <V> The type of the values
+ */
+final class WeakIdentityMap<K, V> {
+    private final Map<Key<K>, V> entries = new HashMap<Key<K>, V>();
+    /**
+     * The keys of the objects which were collected
+     */
+    private final ReferenceQueue<K> collected = new ReferenceQueue<K>();
+
+    synchronized V get(K object) {
+        return entries.get(new Key<K>(object, null));
+    }
+
+    synchronized boolean containsKey(K object) {
+        return entries.containsKey(new Key<K>(object, null));
+    }
+
+    synchronized void put(K object, V value) {
+        expunge();
+        entries.put(new Key<K>(object, collected), value);
+    }
+
+    synchronized void remove(K object) {
+        entries.remove(new Key<K>(object, null));
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        while (collected.poll() != null) {
+        }
+    }
+
+    /**
+     * Removes the values of the collected objects
+     */
+    private void expunge() {
+        Reference<? extends K> key;
+        while ((key = collected.poll()) != null) {
+            entries.remove(key);
+        }
+    }
+
+    private static final class Key<K> extends WeakReference<K> {
+        private final int hashCode;
+
+        private Key(K object, ReferenceQueue<K> queue) {
+            super(object, queue);
+            this.hashCode = System.identityHashCode(object);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Object object = get();
+            return object != null && object == ((Key<?>) o).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -19,6 +19,9 @@
 
 package com.p000ison.dev.sqlapi.annotation;
 
+import com.p000ison.dev.sqlapi.codec.ColumnCodec;
+import com.p000ison.dev.sqlapi.codec.SerializationCodec;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -85,4 +88,37 @@ public @interface DatabaseColumnSetter {
     boolean id() default false;
 
     boolean saveValueAfterLoading() default false;
+
+    /**
+     * Sets the codec which converts the value of a Serializable column to bytes. Default is the java serialization.
+     *
+     * @return The class of the codec
+     */
+    Class<? extends ColumnCodec> codec() default SerializationCodec.class;
+
+    /**
+     * Sets whether the encoded value of a Serializable column is compressed if it is large. Values which were stored
+     * uncompressed can still be read.
+     *
+     * @return Whether large values are compressed
+     */
+    boolean compress() default false;
+
+    /**
+     * Marks the column which holds the time or the version of the last modification of a entry. The value must grow
+     * every time the entry changes, it is not set automatically. Only one column of a table can be marked.
+     *
+     * @return Whether this is the modification column
+     * @see com.p000ison.dev.sqlapi.Database#syncSince(Class, com.p000ison.dev.sqlapi.Database, long)
+     */
+    boolean modification() default false;
+
+    /**
+     * Marks a number column as counter. Counters are changed with
+     * {@link com.p000ison.dev.sqlapi.Database#increment(com.p000ison.dev.sqlapi.TableObject, String, long)} and only the
+     * deltas are written, so updates of the entry do not overwrite the column.
+     *
+     * @return Whether this is a counter column
+     */
+    boolean counter() default false;
 }
@@ -37,4 +37,20 @@ public @interface DatabaseTable {
      * @return The name of the table
      */
     String name();
+
+    /**
+     * Whether the values of the entries should be remembered when they are loaded or saved. Updates of tracked entries
+     * only write the columns which changed and are skipped if nothing changed.
+     *
+     * @return Whether changes should be tracked
+     */
+    boolean trackChanges() default false;
+
+    /**
+     * Sets how many entries of this table are cached by their id. The least recently used entries are evicted first.
+     * Default is 0, which means there is no cache.
+     *
+     * @return The maximal amount of cached entries
+     */
+    int cacheSize() default 0;
 }
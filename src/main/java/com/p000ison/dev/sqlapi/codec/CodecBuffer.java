@@ -0,0 +1,81 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 06.01.13 15:40
+ */
+
+package com.p000ison.dev.sqlapi.codec;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A output stream whose buffer is reused by the codecs of a thread, so encoding a value only allocates the result
+ */
+final class CodecBuffer extends ByteArrayOutputStream {
+    /**
+     * Buffers which grew larger than this are not kept
+     */
+    private static final int MAX_KEPT_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<CodecBuffer> BUFFERS = new ThreadLocal<CodecBuffer>() {
+        @Override
+        protected CodecBuffer initialValue() {
+            return new CodecBuffer();
+        }
+    };
+
+    private CodecBuffer() {
+        super(256);
+    }
+
+    /**
+     * Gets the empty buffer of the current thread
+     *
+     * @return The buffer
+     */
+    static CodecBuffer get() {
+        CodecBuffer buffer = BUFFERS.get();
+        if (buffer.buf.length > MAX_KEPT_SIZE) {
+            buffer = new CodecBuffer();
+            BUFFERS.set(buffer);
+        }
+        buffer.reset();
+        return buffer;
+    }
+
+    void writeVarInt(long value) {
+        while ((value & ~0x7FL) != 0) {
+            write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        write((int) value);
+    }
+
+    void writeLong(long value) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buf[count++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if (count + length > buf.length) {
+            byte[] bigger = new byte[Math.max(buf.length * 2, count + length)];
+            System.arraycopy(buf, 0, bigger, 0, count);
+            buf = bigger;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 06.01.13 15:40
+ */
+
+package com.p000ison.dev.sqlapi.codec;
+
+/**
+ * Converts the values of Serializable columns to bytes and back. A codec is selected per column with the codec
+ * attribute of {@link com.p000ison.dev.sqlapi.annotation.DatabaseColumn} or
+ * {@link com.p000ison.dev.sqlapi.annotation.DatabaseColumnSetter}. Implementations need a public constructor without
+ * parameters and must be thread-safe, since one instance is shared by all columns.
+ * <p/>
+ * The encoded bytes must not start with the magic bytes of the java serialization (0xACED), because these values are
+ * always read with the java serialization, so entries which were written before the codec was changed stay readable.
+ * They must not start with the header of {@link Compression} either.
+ */
+public interface ColumnCodec {
+
+    /**
+     * Encodes a value
+     *
+     * @param value The value, never null
+     * @return The encoded bytes
+     */
+    byte[] encode(Object value);
+
+    /**
+     * Decodes a value
+     *
+     * @param bytes The encoded bytes
+     * @param type  The type of the column
+     * @return The value
+     */
+    Object decode(byte[] bytes, Class<?> type);
+}
@@ -0,0 +1,352 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 06.01.13 15:40
+ */
+
+package com.p000ison.dev.sqlapi.codec;
+
+import com.p000ison.dev.sqlapi.exception.QueryException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary codec. Strings, boxed primitives, arrays of primitives and the common lists, sets and maps of these
+ * are written without class descriptors and with variable length numbers. Every other object is written with the
+ * java serialization.
+ */
+public final class CompactCodec implements ColumnCodec {
+    /**
+     * The first byte of every value, the version of the format
+     */
+    private static final int FORMAT = 1;
+
+    private static final int NULL = 0, TRUE = 1, FALSE = 2, BYTE = 3, SHORT = 4, INTEGER = 5, LONG = 6, FLOAT = 7,
+            DOUBLE = 8, CHARACTER = 9, STRING = 10, BYTE_ARRAY = 11, INT_ARRAY = 12, LONG_ARRAY = 13, DOUBLE_ARRAY = 14,
+            ARRAY_LIST = 15, LINKED_LIST = 16, HASH_SET = 17, LINKED_HASH_SET = 18, HASH_MAP = 19, LINKED_HASH_MAP = 20,
+            SERIALIZED = 21;
+
+    private static final String CHARSET = "UTF-8";
+
+    @Override
+    public byte[] encode(Object value) {
+        CodecBuffer buffer = CodecBuffer.get();
+        buffer.write(FORMAT);
+        write(buffer, value);
+        return buffer.toByteArray();
+    }
+
+    @Override
+    public Object decode(byte[] bytes, Class<?> type) {
+        Input input = new Input(bytes);
+        int format = input.read();
+        if (format != FORMAT) {
+            throw new QueryException("Unknown format %s of a compact encoded value!", format);
+        }
+        return read(input);
+    }
+
+    private static void write(CodecBuffer buffer, Object value) {
+        if (value == null) {
+            buffer.write(NULL);
+            return;
+        }
+
+        Class<?> type = value.getClass();
+
+        if (type == Boolean.class) {
+            buffer.write((Boolean) value ? TRUE : FALSE);
+        } else if (type == Byte.class) {
+            buffer.write(BYTE);
+            buffer.write((Byte) value);
+        } else if (type == Short.class) {
+            buffer.write(SHORT);
+            buffer.writeVarInt(zigZag((Short) value));
+        } else if (type == Integer.class) {
+            buffer.write(INTEGER);
+            buffer.writeVarInt(zigZag((Integer) value));
+        } else if (type == Long.class) {
+            buffer.write(LONG);
+            buffer.writeVarInt(zigZag((Long) value));
+        } else if (type == Float.class) {
+            buffer.write(FLOAT);
+            buffer.writeVarInt(Float.floatToIntBits((Float) value) & 0xFFFFFFFFL);
+        } else if (type == Double.class) {
+            buffer.write(DOUBLE);
+            buffer.writeLong(Double.doubleToLongBits((Double) value));
+        } else if (type == Character.class) {
+            buffer.write(CHARACTER);
+            buffer.writeVarInt((Character) value);
+        } else if (type == String.class) {
+            buffer.write(STRING);
+            writeBytes(buffer, getBytes((String) value));
+        } else if (type == byte[].class) {
+            buffer.write(BYTE_ARRAY);
+            writeBytes(buffer, (byte[]) value);
+        } else if (type == int[].class) {
+            int[] array = (int[]) value;
+            buffer.write(INT_ARRAY);
+            buffer.writeVarInt(array.length);
+            for (int element : array) {
+                buffer.writeVarInt(zigZag(element));
+            }
+        } else if (type == long[].class) {
+            long[] array = (long[]) value;
+            buffer.write(LONG_ARRAY);
+            buffer.writeVarInt(array.length);
+            for (long element : array) {
+                buffer.writeVarInt(zigZag(element));
+            }
+        } else if (type == double[].class) {
+            double[] array = (double[]) value;
+            buffer.write(DOUBLE_ARRAY);
+            buffer.writeVarInt(array.length);
+            for (double element : array) {
+                buffer.writeLong(Double.doubleToLongBits(element));
+            }
+        } else if (type == ArrayList.class) {
+            writeCollection(buffer, ARRAY_LIST, (Collection<?>) value);
+        } else if (type == LinkedList.class) {
+            writeCollection(buffer, LINKED_LIST, (Collection<?>) value);
+        } else if (type == HashSet.class) {
+            writeCollection(buffer, HASH_SET, (Collection<?>) value);
+        } else if (type == LinkedHashSet.class) {
+            writeCollection(buffer, LINKED_HASH_SET, (Collection<?>) value);
+        } else if (type == HashMap.class) {
+            writeMap(buffer, HASH_MAP, (Map<?, ?>) value);
+        } else if (type == LinkedHashMap.class) {
+            writeMap(buffer, LINKED_HASH_MAP, (Map<?, ?>) value);
+        } else {
+            buffer.write(SERIALIZED);
+            //the buffer of this thread is in use, so this needs its own one
+            writeBytes(buffer, SerializationCodec.serialize(value, new ByteArrayOutputStream()));
+        }
+    }
+
+    private static void writeCollection(CodecBuffer buffer, int tag, Collection<?> collection) {
+        buffer.write(tag);
+        buffer.writeVarInt(collection.size());
+        for (Object element : collection) {
+            write(buffer, element);
+        }
+    }
+
+    private static void writeMap(CodecBuffer buffer, int tag, Map<?, ?> map) {
+        buffer.write(tag);
+        buffer.writeVarInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            write(buffer, entry.getKey());
+            write(buffer, entry.getValue());
+        }
+    }
+
+    private static void writeBytes(CodecBuffer buffer, byte[] bytes) {
+        buffer.writeVarInt(bytes.length);
+        buffer.write(bytes, 0, bytes.length);
+    }
+
+    private static Object read(Input input) {
+        int tag = input.read();
+
+        switch (tag) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case BYTE:
+                return (byte) input.read();
+            case SHORT:
+                return (short) unZigZag(input.readVarInt());
+            case INTEGER:
+                return (int) unZigZag(input.readVarInt());
+            case LONG:
+                return unZigZag(input.readVarInt());
+            case FLOAT:
+                return Float.intBitsToFloat((int) input.readVarInt());
+            case DOUBLE:
+                return Double.longBitsToDouble(input.readLong());
+            case CHARACTER:
+                return (char) input.readVarInt();
+            case STRING:
+                return getString(input.readBytes());
+            case BYTE_ARRAY:
+                return input.readBytes();
+            case INT_ARRAY: {
+                int[] array = new int[input.readLength()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = (int) unZigZag(input.readVarInt());
+                }
+                return array;
+            }
+            case LONG_ARRAY: {
+                long[] array = new long[input.readLength()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = unZigZag(input.readVarInt());
+                }
+                return array;
+            }
+            case DOUBLE_ARRAY: {
+                double[] array = new double[input.readLength()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = Double.longBitsToDouble(input.readLong());
+                }
+                return array;
+            }
+            case ARRAY_LIST: {
+                int size = input.readLength();
+                return readCollection(input, new ArrayList<Object>(size), size);
+            }
+            case LINKED_LIST:
+                return readCollection(input, new LinkedList<Object>(), input.readLength());
+            case HASH_SET: {
+                int size = input.readLength();
+                return readCollection(input, new HashSet<Object>(capacity(size)), size);
+            }
+            case LINKED_HASH_SET: {
+                int size = input.readLength();
+                return readCollection(input, new LinkedHashSet<Object>(capacity(size)), size);
+            }
+            case HASH_MAP: {
+                int size = input.readLength();
+                return readMap(input, new HashMap<Object, Object>(capacity(size)), size);
+            }
+            case LINKED_HASH_MAP: {
+                int size = input.readLength();
+                return readMap(input, new LinkedHashMap<Object, Object>(capacity(size)), size);
+            }
+            case SERIALIZED: {
+                byte[] bytes = input.readBytes();
+                return SerializationCodec.deserialize(bytes, 0, bytes.length);
+            }
+            default:
+                throw new QueryException("Unknown type %s in a compact encoded value!", tag);
+        }
+    }
+
+    private static Collection<Object> readCollection(Input input, Collection<Object> collection, int size) {
+        for (int i = 0; i < size; i++) {
+            collection.add(read(input));
+        }
+        return collection;
+    }
+
+    private static Map<Object, Object> readMap(Input input, Map<Object, Object> map, int size) {
+        for (int i = 0; i < size; i++) {
+            Object key = read(input);
+            map.put(key, read(input));
+        }
+        return map;
+    }
+
+    private static int capacity(int size) {
+        return Math.max((int) (size / 0.75F) + 1, 16);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static byte[] getBytes(String string) {
+        try {
+            return string.getBytes(CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    private static String getString(byte[] bytes) {
+        try {
+            return new String(bytes, CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    /**
+     * Reads the encoded bytes
+     */
+    private static final class Input {
+        private final byte[] bytes;
+        private int position;
+
+        private Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int read() {
+            if (position >= bytes.length) {
+                throw new QueryException("The compact encoded value ended unexpectedly!");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        long readVarInt() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new QueryException("Malformed number in a compact encoded value!");
+        }
+
+        int readLength() {
+            long length = readVarInt();
+            //every element needs at least one byte
+            if (length < 0 || length > bytes.length - position) {
+                throw new QueryException("Invalid length %s in a compact encoded value!", length);
+            }
+            return (int) length;
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | read();
+            }
+            return value;
+        }
+
+        byte[] readBytes() {
+            int length = readLength();
+            if (length > bytes.length - position) {
+                throw new QueryException("The compact encoded value ended unexpectedly!");
+            }
+            byte[] result = new byte[length];
+            System.arraycopy(bytes, position, result, 0, length);
+            position += length;
+            return result;
+        }
+    }
+}
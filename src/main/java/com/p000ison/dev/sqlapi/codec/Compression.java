@@ -0,0 +1,121 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 07.01.13 10:05
+ */
+
+package com.p000ison.dev.sqlapi.codec;
+
+import com.p000ison.dev.sqlapi.exception.QueryException;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses the encoded values of columns. Compressed values start with a header byte, values without it are stored
+ * as they are, so values which were written before the compression was enabled stay readable.
+ */
+public final class Compression {
+    /**
+     * The first byte of compressed values
+     */
+    public static final byte HEADER = 0x1F;
+    /**
+     * Values smaller than this amount of bytes are not compressed
+     */
+    public static final int THRESHOLD = 256;
+
+    private static final ThreadLocal<Deflater> DEFLATERS = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+    };
+    private static final ThreadLocal<Inflater> INFLATERS = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+
+    private Compression() {
+    }
+
+    /**
+     * Compresses the bytes if they are larger than the {@link #THRESHOLD} and get smaller by compressing them
+     *
+     * @param bytes The encoded value
+     * @return The compressed bytes with the header or the bytes as they are
+     */
+    public static byte[] compress(byte[] bytes) {
+        if (bytes.length < THRESHOLD) {
+            return bytes;
+        }
+
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setInput(bytes);
+        deflater.finish();
+
+        CodecBuffer buffer = CodecBuffer.get();
+        buffer.write(HEADER);
+        byte[] chunk = new byte[Math.min(bytes.length, 8192)];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(chunk);
+            buffer.write(chunk, 0, length);
+
+            if (buffer.size() >= bytes.length) {
+                //compressing does not help
+                return bytes;
+            }
+        }
+
+        return buffer.toByteArray();
+    }
+
+    public static boolean isCompressed(byte[] bytes) {
+        return bytes.length > 0 && bytes[0] == HEADER;
+    }
+
+    /**
+     * Decompresses bytes which were compressed by {@link #compress(byte[])}
+     *
+     * @param bytes The compressed bytes with the header
+     * @return The encoded value
+     */
+    public static byte[] decompress(byte[] bytes) {
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(bytes, 1, bytes.length - 1);
+
+        CodecBuffer buffer = CodecBuffer.get();
+        byte[] chunk = new byte[Math.max(256, Math.min(bytes.length * 4, 65536))];
+        try {
+            while (!inflater.finished()) {
+                int length = inflater.inflate(chunk);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new QueryException("The compressed value is incomplete!");
+                }
+                buffer.write(chunk, 0, length);
+            }
+        } catch (DataFormatException e) {
+            throw new QueryException(e);
+        }
+
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 06.01.13 15:40
+ */
+
+package com.p000ison.dev.sqlapi.codec;
+
+import com.p000ison.dev.sqlapi.exception.QueryException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * The default codec which uses the java serialization
+ */
+public final class SerializationCodec implements ColumnCodec {
+
+    private static final byte MAGIC_FIRST = (byte) 0xAC, MAGIC_SECOND = (byte) 0xED;
+
+    @Override
+    public byte[] encode(Object value) {
+        return serialize(value, CodecBuffer.get());
+    }
+
+    static byte[] serialize(Object value, ByteArrayOutputStream buffer) {
+        try {
+            ObjectOutputStream outputStream = new ObjectOutputStream(buffer);
+            outputStream.writeObject(value);
+            outputStream.close();
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    @Override
+    public Object decode(byte[] bytes, Class<?> type) {
+        return deserialize(bytes, 0, bytes.length);
+    }
+
+    static Object deserialize(byte[] bytes, int offset, int length) {
+        try {
+            ObjectInputStream inputStream = new ObjectInputStream(new ByteArrayInputStream(bytes, offset, length));
+            try {
+                return inputStream.readObject();
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            throw new QueryException(e);
+        } catch (ClassNotFoundException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    /**
+     * Checks whether the bytes were written by the java serialization
+     *
+     * @param bytes The bytes
+     * @return Whether the bytes start with the magic bytes of the java serialization
+     */
+    public static boolean isSerialized(byte[] bytes) {
+        return bytes.length >= 2 && bytes[0] == MAGIC_FIRST && bytes[1] == MAGIC_SECOND;
+    }
+
+    /**
+     * Decodes bytes with the codec of a column. Compressed values are decompressed first. Values which were written with
+     * the java serialization are always decoded with it.
+     *
+     * @param codec The codec of the column
+     * @param bytes The bytes
+     * @param type  The type of the column
+     * @return The value
+     */
+    public static Object decode(ColumnCodec codec, byte[] bytes, Class<?> type) {
+        if (Compression.isCompressed(bytes)) {
+            bytes = Compression.decompress(bytes);
+        }
+
+        if (isSerialized(bytes)) {
+            return deserialize(bytes, 0, bytes.length);
+        }
+
+        return codec.decode(bytes, type);
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 30.12.12 14:12
+ */
+
+package com.p000ison.dev.sqlapi.jbdc;
+
+import com.p000ison.dev.sqlapi.exception.QueryException;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded pool of connections. Every operation leases a connection and returns it once it is done, so independent
+ * operations can run in parallel.
+ * <p/>
+ * Connections are created lazily. Idle connections are closed once they were not used for the idle timeout and
+ * connections which were idle for a while get validated before they are leased again.
+ * <p/>
+ * Connections which are held by a object that can be abandoned, like a iterator, can be watched. If the object gets
+ * collected before it returned its connection, the connection is returned the next time a connection is leased.
+ */
+final class ConnectionPool {
+    /**
+     * The time in milliseconds a connection can be idle before we validate it when leasing
+     */
+    private static final long VALIDATION_INTERVAL = 1000L;
+    /**
+     * The time in seconds we wait for a free connection
+     */
+    private static final long LEASE_TIMEOUT = 30L;
+    /**
+     * The time in milliseconds between two checks for abandoned connections while waiting for a free connection
+     */
+    private static final long REAP_INTERVAL = 100L;
+
+    private final JBDCDatabase database;
+    private final Semaphore permits;
+    /**
+     * The idle connections, the most recently used one is always first
+     */
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<PooledConnection>();
+    private final long idleTimeout;
+    private final int statementCacheSize;
+    private volatile boolean closed;
+    private final ReferenceQueue<Object> abandoned = new ReferenceQueue<Object>();
+    /**
+     * The watched leases, the references must be reachable until they are enqueued
+     */
+    private final Set<WatchedLease> watched = Collections.newSetFromMap(new ConcurrentHashMap<WatchedLease, Boolean>());
+
+    ConnectionPool(JBDCDatabase database, int size, long idleTimeout, int statementCacheSize) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The pool size must be greater than 0!");
+        } else if (statementCacheSize < 1) {
+            throw new IllegalArgumentException("The statement cache size must be greater than 0!");
+        }
+        this.database = database;
+        this.permits = new Semaphore(size, true);
+        this.idleTimeout = idleTimeout;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Leases a connection. The connection must be returned with {@link #release(PooledConnection)}.
+     *
+     * @return A valid connection
+     * @throws QueryException If the pool is closed or there was no free connection in time
+     */
+    PooledConnection lease() {
+        if (closed) {
+            throw new QueryException("The connection pool is closed!");
+        }
+
+        try {
+            reapAbandoned();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(LEASE_TIMEOUT);
+            while (!permits.tryAcquire(REAP_INTERVAL, TimeUnit.MILLISECONDS)) {
+                reapAbandoned();
+                if (System.nanoTime() - deadline >= 0) {
+                    throw new QueryException("Timed out while waiting for a free connection!");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryException(e);
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            PooledConnection connection;
+
+            while ((connection = idle.pollFirst()) != null) {
+                long idleTime = now - connection.getLastUsed();
+
+                if (isExpired(idleTime) || (idleTime > VALIDATION_INTERVAL && !connection.isValid())) {
+                    connection.close();
+                    continue;
+                }
+
+                return connection;
+            }
+
+            return new PooledConnection(database.openConnection(), statementCacheSize);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a leased connection to the pool
+     *
+     * @param connection The connection
+     */
+    void release(PooledConnection connection) {
+        try {
+            if (closed || connection.isClosed()) {
+                connection.close();
+            } else {
+                connection.touch();
+                idle.offerFirst(connection);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Watches the owner of a leased connection. If the owner gets collected before {@link #unwatch(Object)} was called,
+     * the cleanup runs the next time a connection is leased. The cleanup must return the connection and must not
+     * reference the owner.
+     *
+     * @param owner   The object which holds the connection
+     * @param cleanup Returns the connection
+     * @return The handle for {@link #unwatch(Object)}
+     */
+    Object watch(Object owner, Runnable cleanup) {
+        WatchedLease lease = new WatchedLease(owner, abandoned, cleanup);
+        watched.add(lease);
+        return lease;
+    }
+
+    /**
+     * Stops watching a owner, because it returned its connection
+     *
+     * @param handle The handle returned by {@link #watch(Object, Runnable)}
+     */
+    void unwatch(Object handle) {
+        WatchedLease lease = (WatchedLease) handle;
+        watched.remove(lease);
+        lease.clear();
+    }
+
+    /**
+     * Runs the cleanups of the owners which were collected without returning their connection
+     */
+    void reapAbandoned() {
+        Object reference;
+        while ((reference = abandoned.poll()) != null) {
+            WatchedLease lease = (WatchedLease) reference;
+            if (!watched.remove(lease)) {
+                continue;
+            }
+
+            try {
+                lease.cleanup.run();
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Closes all connections which were idle longer than the idle timeout
+     */
+    void evictIdle() {
+        reapAbandoned();
+        long now = System.currentTimeMillis();
+
+        for (Iterator<PooledConnection> it = idle.descendingIterator(); it.hasNext(); ) {
+            PooledConnection connection = it.next();
+            if (isExpired(now - connection.getLastUsed()) && idle.removeLastOccurrence(connection)) {
+                connection.close();
+            }
+        }
+    }
+
+    private boolean isExpired(long idleTime) {
+        return idleTimeout > 0 && idleTime > idleTimeout;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    private static final class WatchedLease extends PhantomReference<Object> {
+        private final Runnable cleanup;
+
+        private WatchedLease(Object owner, ReferenceQueue<Object> queue, Runnable cleanup) {
+            super(owner, queue);
+            this.cleanup = cleanup;
+        }
+    }
+
+    /**
+     * Closes the pool and all idle connections. Leased connections get closed once they are returned.
+     */
+    void close() {
+        closed = true;
+
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+}
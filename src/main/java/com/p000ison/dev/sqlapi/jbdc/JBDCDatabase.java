@@ -22,77 +22,253 @@ package com.p000ison.dev.sqlapi.jbdc;
 import com.p000ison.dev.sqlapi.*;
 import com.p000ison.dev.sqlapi.exception.DatabaseConnectionException;
 import com.p000ison.dev.sqlapi.exception.QueryException;
+import com.p000ison.dev.sqlapi.query.PreparedQuery;
+import com.p000ison.dev.sqlapi.query.RowView;
 
 import java.sql.*;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a JBDCDatabase
  */
 public abstract class JBDCDatabase extends Database {
     /**
-     * The connection to the database
+     * The pool which holds the connections to the database
      */
-    private Connection connection;
+    private final ConnectionPool pool;
+    /**
+     * The connection which is pinned to the current thread, for example because of a transaction
+     */
+    private final ThreadLocal<PinnedConnection> pinned = new ThreadLocal<PinnedConnection>();
 
     public JBDCDatabase(DatabaseConfiguration configuration) throws DatabaseConnectionException {
         super(configuration);
 
-        connection = connect(configuration);
-        if (!testConnection()) {
-            throw new DatabaseConnectionException(configuration, "Failed to connect to the database! Test failed!");
+        pool = new ConnectionPool(this, configuration.getPoolSize(), configuration.getIdleTimeout(), configuration.getStatementCacheSize());
+
+        PooledConnection connection = leaseConnection();
+        try {
+            if (!connection.isValid()) {
+                throw new DatabaseConnectionException(configuration, "Failed to connect to the database! Test failed!");
+            }
+        } finally {
+            releaseConnection(connection);
         }
     }
 
     protected abstract Connection connect(DatabaseConfiguration configuration) throws DatabaseConnectionException;
 
+    /**
+     * Opens a new connection for the pool
+     *
+     * @return A new connection
+     */
+    Connection openConnection() {
+        return connect(getConfiguration());
+    }
+
+    /**
+     * Leases a connection from the pool. Every leased connection must be returned with {@link #releaseConnection(PooledConnection)}.
+     *
+     * @return A connection
+     */
+    PooledConnection leaseConnection() {
+        PinnedConnection pinnedConnection = pinned.get();
+        if (pinnedConnection != null) {
+            return pinnedConnection.connection;
+        }
+
+        return pool.lease();
+    }
+
+    /**
+     * Returns a leased connection to the pool if its owner gets collected before it released the connection. Pinned
+     * connections are not watched, they are returned when they get unpinned.
+     *
+     * @param owner      The object which holds the connection
+     * @param connection The connection
+     * @param cleanup    Returns the connection, it must not reference the owner
+     * @return The handle for {@link #unwatchConnection(Object)} or null if the connection is not watched
+     */
+    Object watchConnection(Object owner, PooledConnection connection, Runnable cleanup) {
+        PinnedConnection pinnedConnection = pinned.get();
+        if (pinnedConnection != null && pinnedConnection.connection == connection) {
+            return null;
+        }
+
+        return pool.watch(owner, cleanup);
+    }
+
+    void unwatchConnection(Object handle) {
+        if (handle != null) {
+            pool.unwatch(handle);
+        }
+    }
+
+    void releaseConnection(PooledConnection connection) {
+        PinnedConnection pinnedConnection = pinned.get();
+        if (pinnedConnection != null && pinnedConnection.connection == connection) {
+            return;
+        }
+
+        pool.release(connection);
+    }
+
     @Override
-    public void closeDatabaseConnection() throws QueryException {
+    protected void pinConnection() {
+        PinnedConnection pinnedConnection = pinned.get();
+        if (pinnedConnection == null) {
+            pinnedConnection = new PinnedConnection(pool.lease());
+            pinned.set(pinnedConnection);
+        }
+
+        pinnedConnection.pins++;
+    }
+
+    @Override
+    protected void unpinConnection() {
+        PinnedConnection pinnedConnection = pinned.get();
+        if (pinnedConnection == null) {
+            return;
+        }
+
+        if (--pinnedConnection.pins == 0) {
+            pinned.remove();
+            pool.release(pinnedConnection.connection);
+        }
+    }
+
+    @Override
+    public void beginTransaction() {
+        pinConnection();
+        PinnedConnection pinnedConnection = pinned.get();
+
+        if (pinnedConnection.transactions == 0) {
+            try {
+                pinnedConnection.connection.getConnection().setAutoCommit(false);
+            } catch (SQLException e) {
+                unpinConnection();
+                throw new QueryException(e);
+            }
+        }
+
+        pinnedConnection.transactions++;
+    }
+
+    @Override
+    public void commit() {
+        PinnedConnection pinnedConnection = getTransaction();
+
+        if (--pinnedConnection.transactions > 0) {
+            unpinConnection();
+            return;
+        }
+
         try {
-            if (connection != null && !connection.isClosed()) {
-                getConnection().close();
+            Connection connection = pinnedConnection.connection.getConnection();
+            if (pinnedConnection.rollbackOnly) {
+                connection.rollback();
+                invalidateTables();
+                throw new QueryException("The transaction was rolled back by a nested transaction!");
             }
+
+            connection.commit();
         } catch (SQLException e) {
+            rollbackQuietly(pinnedConnection);
             throw new QueryException(e);
+        } finally {
+            endTransaction(pinnedConnection);
         }
     }
 
     @Override
-    public List<String> getDatabaseColumns(String table) {
-        List<String> columns = new ArrayList<String>();
+    public void rollback() {
+        PinnedConnection pinnedConnection = getTransaction();
+        invalidateTables();
+
+        if (--pinnedConnection.transactions > 0) {
+            pinnedConnection.rollbackOnly = true;
+            unpinConnection();
+            return;
+        }
 
         try {
-            ResultSet columnResult = getMetadata().getColumns(null, null, table, null);
+            pinnedConnection.connection.getConnection().rollback();
+        } catch (SQLException e) {
+            throw new QueryException(e);
+        } finally {
+            endTransaction(pinnedConnection);
+        }
+    }
 
+    @Override
+    public boolean isInTransaction() {
+        PinnedConnection pinnedConnection = pinned.get();
+        return pinnedConnection != null && pinnedConnection.transactions > 0;
+    }
 
-            while (columnResult.next()) {
-                columns.add(columnResult.getString("COLUMN_NAME"));
-            }
+    private PinnedConnection getTransaction() {
+        PinnedConnection pinnedConnection = pinned.get();
+        if (pinnedConnection == null || pinnedConnection.transactions == 0) {
+            throw new QueryException("There is no transaction in this thread!");
+        }
+        return pinnedConnection;
+    }
+
+    private void rollbackQuietly(PinnedConnection pinnedConnection) {
+        invalidateTables();
+        try {
+            pinnedConnection.connection.getConnection().rollback();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private void endTransaction(PinnedConnection pinnedConnection) {
+        pinnedConnection.rollbackOnly = false;
+        endTransactionWrites();
+        try {
+            pinnedConnection.connection.getConnection().setAutoCommit(true);
         } catch (SQLException e) {
             throw new QueryException(e);
+        } finally {
+            unpinConnection();
         }
+    }
 
-        return columns;
+    @Override
+    public void closeDatabaseConnection() throws QueryException {
+        pool.close();
     }
 
-    private DatabaseMetaData getMetadata() {
+    @Override
+    public List<String> getDatabaseColumns(String table) {
+        List<String> columns = new ArrayList<String>();
+
+        PooledConnection connection = leaseConnection();
+        ResultSet columnResult = null;
         try {
-            return getConnection().getMetaData();
+            columnResult = connection.getConnection().getMetaData().getColumns(null, null, table, null);
+
+            while (columnResult.next()) {
+                columns.add(columnResult.getString("COLUMN_NAME"));
+            }
         } catch (SQLException e) {
             throw new QueryException(e);
+        } finally {
+            handleClose(null, columnResult);
+            releaseConnection(connection);
         }
+
+        return columns;
     }
 
     @Override
     public boolean existsDatabaseTable(String table) {
-        ResultSet columnResult;
+        PooledConnection connection = leaseConnection();
+        ResultSet columnResult = null;
         try {
-            columnResult = this.getMetadata().getTables(null, null, null, null);
+            columnResult = connection.getConnection().getMetaData().getTables(null, null, null, null);
 
             while (columnResult.next()) {
                 if (table.equals(columnResult.getString("TABLE_NAME"))) {
@@ -102,40 +278,64 @@ public abstract class JBDCDatabase extends Database {
 
         } catch (SQLException e) {
             throw new QueryException(e);
+        } finally {
+            handleClose(null, columnResult);
+            releaseConnection(connection);
         }
 
         return false;
     }
 
-    protected final Connection getConnection() {
-        return connection;
-    }
-
     @Override
     public boolean executeDirectUpdate(String query) {
         if (query == null) {
             return false;
         }
+        PooledConnection connection = leaseConnection();
         Statement statement = null;
         try {
-            statement = getConnection().createStatement();
+            statement = connection.getConnection().createStatement();
             return statement.executeUpdate(query) != 0;
         } catch (SQLException e) {
             throw new QueryException(e);
         } finally {
             handleClose(statement, null);
+            releaseConnection(connection);
         }
     }
 
     @Override
     public boolean isConnected() {
+        return !pool.isClosed();
+    }
+
+    /**
+     * Gets a connection of the pool. The connection is returned to the pool at once, so other threads may use it at the
+     * same time.
+     *
+     * @return The connection
+     * @deprecated Use {@link #executeDirectUpdate(String)} or the prepared queries, they lease a connection only while
+     *             they run
+     */
+    @Deprecated
+    protected final Connection getConnection() {
+        PooledConnection connection = leaseConnection();
         try {
-            return getConnection() != null && !getConnection().isClosed();
-        } catch (SQLException e) {
-            throw new QueryException(e);
+            return connection.getConnection();
+        } finally {
+            releaseConnection(connection);
         }
     }
 
+    /**
+     * Prepares a new statement on a connection of the pool. The connection is returned to the pool at once, the
+     * statement must be closed by the caller.
+     *
+     * @param query The query
+     * @return The statement
+     * @deprecated Use {@link #createPreparedStatement(String)}
+     */
+    @Deprecated
     public PreparedStatement prepare(String query) {
         try {
             return getConnection().prepareStatement(query);
@@ -144,64 +344,214 @@ public abstract class JBDCDatabase extends Database {
         }
     }
 
+    /**
+     * Executes a query on a connection of the pool. The connection is returned to the pool at once, the result set and
+     * its statement must be closed by the caller.
+     *
+     * @param query The query
+     * @return The result set
+     * @deprecated Use the select queries or {@link #select()}
+     */
+    @Deprecated
+    public ResultSet query(String query) {
+        try {
+            return getConnection().createStatement().executeQuery(query);
+        } catch (SQLException e) {
+            throw new QueryException(e);
+        }
+    }
+
     @Override
     public JBDCPreparedQuery createPreparedStatement(String query) {
         return new JBDCPreparedQuery(this, query);
     }
 
+    @Override
+    public JBDCPreparedQuery createPreparedStatement(String query, boolean returnGeneratedKeys) {
+        return new JBDCPreparedQuery(this, query, returnGeneratedKeys);
+    }
+
+    /**
+     * Creates a statement which inserts the rows of a batch with multi-row inserts
+     */
+    @Override
+    protected PreparedQuery createPreparedInsertStatement(RegisteredTable table) {
+        StringBuilder columns = new StringBuilder();
+        int count = 0;
+        for (Column column : table.getRegisteredColumns()) {
+            if (column.isID()) {
+                continue;
+            }
+            columns.append(column.getName()).append(',');
+            count++;
+        }
+
+        if (count == 0) {
+            //there are no values which could be combined
+            return super.createPreparedInsertStatement(table);
+        }
+        columns.deleteCharAt(columns.length() - 1);
+
+        return new JBDCPreparedInsertQuery(this, table.getName(), columns.toString(), count);
+    }
+
+    /**
+     * Builds a query which inserts some rows at once
+     *
+     * @param table   The name of the table
+     * @param columns The names of the columns separated by commas
+     * @param count   The amount of columns
+     * @param rows    The amount of rows
+     * @return The query
+     */
+    protected String buildInsertQuery(String table, String columns, int count, int rows) {
+        StringBuilder query = new StringBuilder("INSERT INTO ").append(table).append(" (").append(columns).append(") VALUES ");
+        for (int row = 0; row < rows; row++) {
+            query.append(row == 0 ? "(" : ",(");
+            for (int i = 0; i < count; i++) {
+                query.append(i == 0 ? "?" : ",?");
+            }
+            query.append(')');
+        }
+        query.append(';');
+
+        return query.toString();
+    }
+
+    /**
+     * Gets the maximum amount of rows which are inserted with one query
+     *
+     * @param columns The amount of columns of a row
+     * @return The amount of rows
+     */
+    protected int getMaxInsertRows(int columns) {
+        return Math.max(1, Math.min(1000, 65535 / columns));
+    }
+
+    /**
+     * Gets the estimated amount of bytes the values of one multi-row insert may have
+     *
+     * @return The amount of bytes
+     * @see DatabaseConfiguration#getMaxInsertBytes()
+     */
+    protected long getMaxInsertBytes() {
+        return getConfiguration().getMaxInsertBytes();
+    }
+
+    /**
+     * Whether the driver returns the generated keys of every row after executing a batch
+     *
+     * @return Whether the generated keys of batches are supported
+     */
+    protected boolean isBatchGeneratedKeysSupported() {
+        return true;
+    }
+
+    /**
+     * Whether a statement can be used again after it executed a batch. Otherwise it is closed and prepared again.
+     *
+     * @return Whether statements of batches are reused
+     */
+    protected boolean isBatchStatementReusable() {
+        return true;
+    }
+
     @Override
     public boolean existsEntry(RegisteredTable table, TableObject object) {
         Column column = table.getIDColumn();
+        String query = "SELECT " + column.getName() + " FROM " + table.getName() + " WHERE " + column.getName() + "=?;";
 
-        PreparedStatement check = null;
+        PooledConnection connection = leaseConnection();
         ResultSet result = null;
         try {
-            check = getConnection().prepareStatement(String.format("SELECT %s FROM %s WHERE %s=%s;", column.getName(), table.getName(), column.getName(), column.getValue(object)));
+            PreparedStatement check = connection.prepare(query);
+            check.setLong(1, ((Number) column.getValue(object)).longValue());
 
             result = check.executeQuery();
             return result.next();
         } catch (SQLException e) {
+            connection.invalidate(query);
             throw new QueryException(e);
         } finally {
-            handleClose(check, result);
+            handleClose(null, result);
+            releaseConnection(connection);
         }
     }
 
     @Override
-    public boolean existsEntry(TableObject object) {
-        return this.existsEntry(getRegisteredTable(object.getClass()), object);
+    protected List<Object[]> selectValues(String query, Object[] values, int columns) {
+        PooledConnection connection = leaseConnection();
+        ResultSet result = null;
+        try {
+            PreparedStatement statement = connection.prepare(query);
+            statement.clearParameters();
+            for (int i = 0; i < values.length; i++) {
+                statement.setObject(i + 1, values[i]);
+            }
+
+            result = statement.executeQuery();
+            List<Object[]> rows = new ArrayList<Object[]>();
+            while (result.next()) {
+                Object[] row = new Object[columns];
+                for (int i = 0; i < columns; i++) {
+                    row[i] = result.getObject(i + 1);
+                }
+                rows.add(row);
+            }
+            return rows;
+        } catch (SQLException e) {
+            connection.invalidate(query);
+            throw new QueryException(e);
+        } finally {
+            handleClose(null, result);
+            releaseConnection(connection);
+        }
     }
 
     @Override
-    protected long getLastEntryId(RegisteredTable table) {
-        Column idColumn = table.getIDColumn();
-        PreparedStatement check = null;
+    protected List<RowView> selectRows(String query, Object[] values, List<Column> columns) {
+        ColumnType[] types = new ColumnType[columns.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = columns.get(i).getColumnType();
+        }
+
+        PooledConnection connection = leaseConnection();
         ResultSet result = null;
         try {
-            check = getConnection().prepareStatement(String.format("SELECT %s FROM %s ORDER BY %s DESC LIMIT 1;", idColumn.getName(), table.getName(), idColumn.getName()));
-            result = check.executeQuery();
-            if (!result.next()) {
-                return 1;
+            PreparedStatement statement = connection.prepare(query);
+            statement.clearParameters();
+            for (int i = 0; i < values.length; i++) {
+                statement.setObject(i + 1, values[i]);
+            }
+
+            result = statement.executeQuery();
+            List<RowView> rows = new ArrayList<RowView>();
+            while (result.next()) {
+                rows.add(new JBDCRowView(columns, types, result));
             }
-            long lastId = result.getLong(idColumn.getName());
-            result.close();
-            check.close();
-            return lastId;
+            return rows;
         } catch (SQLException e) {
+            connection.invalidate(query);
             throw new QueryException(e);
         } finally {
-            handleClose(check, result);
+            handleClose(null, result);
+            releaseConnection(connection);
         }
     }
 
+    @Override
+    public boolean existsEntry(TableObject object) {
+        return this.existsEntry(getRegisteredTable(object.getClass()), object);
+    }
+
     public static void handleClose(Statement check, ResultSet result) {
         try {
-            if (check != null) {
-                check.close();
-            }
             if (result != null) {
                 result.close();
             }
+            if (check != null) {
+                check.close();
+            }
         } catch (SQLException e) {
             throw new QueryException(e);
         }
@@ -209,104 +559,152 @@ public abstract class JBDCDatabase extends Database {
 
     @Override
     public boolean isSupported(Class<?> type) {
-        return isSupportedByDatabase(type);
-    }
-
-    static boolean isSupportedByDatabase(Class<?> type) {
-        return type.isPrimitive() || Number.class.isAssignableFrom(type)
-                || type == boolean.class || type == Boolean.class || type == AtomicBoolean.class
-                || type == char.class || type == Character.class
-                || type == Date.class || type == Timestamp.class
-                || type == String.class;
-    }
-
-    static int getDatabaseDataType(Class<?> type) {
-        if (type == boolean.class || type == Boolean.class || type == AtomicBoolean.class) {
-            return Types.TINYINT;
-        } else if (type == byte.class || type == Byte.class) {
-            return Types.TINYINT;
-        } else if (type == short.class || type == Short.class) {
-            return Types.SMALLINT;
-        } else if (type == int.class || type == Integer.class || type == AtomicInteger.class) {
-            return Types.INTEGER;
-        } else if (type == float.class || type == Float.class) {
-            return Types.FLOAT;
-        } else if (type == double.class || type == Double.class) {
-            return Types.DOUBLE;
-        } else if (type == long.class || type == Long.class || type == AtomicLong.class) {
-            return Types.INTEGER;
-        } else if (type == char.class || type == Character.class) {
-            return Types.CHAR;
-        } else if (type == String.class) {
-            return Types.VARCHAR;
-        } else if (type == java.util.Date.class || type == java.sql.Timestamp.class) {
-            return Types.TIMESTAMP;
-        } else if (RegisteredTable.isSerializable(type)) {
-            return Types.BLOB;
-        }
-
-        return UNSUPPORTED_TYPE;
-    }
-
-    static Object getDatabaseFromResultSet(int index, ResultSet set, Class<?> type) {
+        return ColumnType.of(type) != ColumnType.UNSUPPORTED;
+    }
+
+    /**
+     * The sql types of the column types, indexed by the ordinal of the {@link ColumnType}
+     */
+    private static final int[] DATABASE_DATA_TYPES = new int[ColumnType.values().length];
+
+    static {
+        for (ColumnType type : ColumnType.values()) {
+            DATABASE_DATA_TYPES[type.ordinal()] = findDatabaseDataType(type);
+        }
+    }
+
+    private static int findDatabaseDataType(ColumnType type) {
+        switch (type) {
+            case PRIMITIVE_BOOLEAN:
+            case BOOLEAN:
+            case ATOMIC_BOOLEAN:
+            case PRIMITIVE_BYTE:
+            case BYTE:
+                return Types.TINYINT;
+            case PRIMITIVE_SHORT:
+            case SHORT:
+                return Types.SMALLINT;
+            case PRIMITIVE_INT:
+            case INTEGER:
+            case ATOMIC_INTEGER:
+            case PRIMITIVE_LONG:
+            case LONG:
+            case ATOMIC_LONG:
+                return Types.INTEGER;
+            case PRIMITIVE_FLOAT:
+            case FLOAT:
+                return Types.FLOAT;
+            case PRIMITIVE_DOUBLE:
+            case DOUBLE:
+                return Types.DOUBLE;
+            case PRIMITIVE_CHAR:
+            case CHARACTER:
+                return Types.CHAR;
+            case STRING:
+                return Types.VARCHAR;
+            case DATE:
+            case TIMESTAMP:
+                return Types.TIMESTAMP;
+            case SERIALIZABLE:
+                return Types.BLOB;
+            default:
+                return UNSUPPORTED_TYPE;
+        }
+    }
+
+    static int getDatabaseDataType(ColumnType type) {
+        return DATABASE_DATA_TYPES[type.ordinal()];
+    }
+
+    /**
+     * Reads a value which is not serialized from the result set
+     *
+     * @param index The index of the column in the result set
+     * @param set   The result set
+     * @param type  The type of the column
+     * @return The value
+     */
+    static Object getDatabaseFromResultSet(int index, ResultSet set, ColumnType type) {
         try {
-            if (type == boolean.class || type == Boolean.class || type == AtomicBoolean.class) {
-                return set.getBoolean(index);
-            } else if (type == byte.class || type == Byte.class) {
-                return set.getByte(index);
-            } else if (type == short.class || type == Short.class) {
-                return set.getShort(index);
-            } else if (type == int.class || type == Integer.class || type == AtomicInteger.class) {
-                return set.getInt(index);
-            } else if (type == float.class || type == Float.class) {
-                return set.getFloat(index);
-            } else if (type == double.class || type == Double.class) {
-                return set.getDouble(index);
-            } else if (type == long.class || type == Long.class || type == AtomicLong.class) {
-                return set.getLong(index);
-            } else if (type == char.class || type == Character.class) {
-                return (char) set.getInt(index);
-            } else if (type == String.class) {
-                return set.getString(index);
-            } else if (type == java.util.Date.class || type == java.sql.Timestamp.class) {
-                return set.getTimestamp(index);
-            } else if (RegisteredTable.isSerializable(type)) {
-                return set.getBlob(index);
+            switch (type) {
+                case PRIMITIVE_BOOLEAN:
+                case BOOLEAN:
+                case ATOMIC_BOOLEAN:
+                    return set.getBoolean(index);
+                case PRIMITIVE_BYTE:
+                case BYTE:
+                    return set.getByte(index);
+                case PRIMITIVE_SHORT:
+                case SHORT:
+                    return set.getShort(index);
+                case PRIMITIVE_INT:
+                case INTEGER:
+                case ATOMIC_INTEGER:
+                    return set.getInt(index);
+                case PRIMITIVE_LONG:
+                case LONG:
+                case ATOMIC_LONG:
+                    return set.getLong(index);
+                case PRIMITIVE_FLOAT:
+                case FLOAT:
+                    return set.getFloat(index);
+                case PRIMITIVE_DOUBLE:
+                case DOUBLE:
+                    return set.getDouble(index);
+                case PRIMITIVE_CHAR:
+                case CHARACTER:
+                    return (char) set.getInt(index);
+                case STRING:
+                    return set.getString(index);
+                case DATE:
+                case TIMESTAMP:
+                    return set.getTimestamp(index);
+                default:
+                    return null;
             }
         } catch (SQLException e) {
             throw new QueryException(e);
         }
-
-        return null;
     }
 
     @Override
-    protected <T extends TableObject> JBDCPreparedSelectQuery<T> createPreparedSelectQuery(String query, RegisteredTable table) {
-        return new JBDCPreparedSelectQuery<T>(this, query, table);
+    protected <T extends TableObject> JBDCPreparedSelectQuery<T> createPreparedSelectQuery(String query, RegisteredTable table, List<Column> columns) {
+        return new JBDCPreparedSelectQuery<T>(this, query, table, columns);
     }
 
-    public ResultSet query(String query) {
-        Statement statement;
-        try {
-            statement = getConnection().createStatement();
-            return statement.executeQuery(query);
-        } catch (SQLException e) {
-            throw new QueryException(e);
+    /**
+     * A connection which is reserved for a thread
+     */
+    private static final class PinnedConnection {
+        private final PooledConnection connection;
+        private int pins;
+        private int transactions;
+        private boolean rollbackOnly;
+
+        private PinnedConnection(PooledConnection connection) {
+            this.connection = connection;
         }
     }
 
     @Override
     public void sendKeepAliveQuery() {
+        pool.evictIdle();
         testConnection();
     }
 
     @Override
     public boolean testConnection() {
+        PooledConnection connection;
         try {
-            query("SELECT 1;");
-            return true;
-        } catch (QueryException e) {
+            connection = leaseConnection();
+        } catch (RuntimeException e) {
             return false;
         }
+
+        try {
+            return connection.isValid();
+        } finally {
+            releaseConnection(connection);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,143 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 12.01.13 16:20
+ */
+
+package com.p000ison.dev.sqlapi.jbdc;
+
+import com.p000ison.dev.sqlapi.exception.QueryException;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Represents a JBDCPreparedInsertQuery
+ * <p/>
+ * Single inserts work like a normal {@link JBDCPreparedQuery}, but batches are written with queries which insert many
+ * rows at once. The rows are split into chunks of the maximum size, the rest is split into chunks whose sizes are powers
+ * of two, so only a few different queries are needed and their statements can be reused. A chunk is also ended before
+ * its values exceed the maximum amount of bytes.
+ */
+final class JBDCPreparedInsertQuery extends JBDCPreparedQuery {
+    private final String table;
+    private final String columns;
+    private final int columnCount;
+    private final int maxRows;
+    private final long maxBytes;
+    /**
+     * The queries mapped by the amount of rows they insert
+     */
+    private final Map<Integer, String> queries = new HashMap<Integer, String>();
+
+    JBDCPreparedInsertQuery(JBDCDatabase database, String table, String columns, int columnCount) {
+        super(database, database.buildInsertQuery(table, columns, columnCount, 1), true);
+        this.table = table;
+        this.columns = columns;
+        this.columnCount = columnCount;
+        this.maxRows = database.getMaxInsertRows(columnCount);
+        this.maxBytes = database.getMaxInsertBytes();
+    }
+
+    @Override
+    public synchronized void executeBatches() {
+        if (batches.size() < 2) {
+            super.executeBatches();
+            return;
+        }
+
+        JBDCDatabase database = getDatabase();
+        PooledConnection connection = database.leaseConnection();
+        long[] keys = new long[batches.size()];
+        boolean keysComplete = true;
+        String query = null;
+
+        try {
+            int done = 0;
+            while (done < batches.size()) {
+                int rows = getChunkSize(done);
+                query = getQuery(rows);
+
+                PreparedStatement statement = connection.prepare(query, true);
+                statement.clearParameters();
+                for (int i = 0; i < rows; i++) {
+                    batches.get(done + i).bind(statement, i * columnCount);
+                }
+                statement.executeUpdate();
+
+                long[] generated = readGeneratedKeys(statement);
+                if (generated.length == rows) {
+                    System.arraycopy(generated, 0, keys, done, rows);
+                } else if (generated.length == 1 && !database.isBatchGeneratedKeysSupported()) {
+                    //the driver only returns the id of the last row, the rows of one query get consecutive ids
+                    for (int i = 0; i < rows; i++) {
+                        keys[done + i] = generated[0] - rows + 1 + i;
+                    }
+                } else {
+                    keysComplete = false;
+                }
+
+                done += rows;
+            }
+
+            generatedKeys = keysComplete ? keys : NO_KEYS;
+        } catch (SQLException e) {
+            if (query != null) {
+                connection.invalidate(query, true);
+            }
+            throw new QueryException(e);
+        } finally {
+            batches.clear();
+            database.releaseConnection(connection);
+        }
+    }
+
+    /**
+     * Gets the amount of rows of the next chunk
+     *
+     * @param done The amount of rows which were already written
+     * @return The amount of rows
+     */
+    private int getChunkSize(int done) {
+        int remaining = Math.min(batches.size() - done, maxRows);
+        int rows = 0;
+        long bytes = 0;
+
+        while (rows < remaining) {
+            bytes += batches.get(done + rows).estimateSize();
+            if (rows > 0 && bytes > maxBytes) {
+                break;
+            }
+            rows++;
+        }
+
+        if (rows == maxRows) {
+            return rows;
+        }
+        return Integer.highestOneBit(rows);
+    }
+
+    private String getQuery(int rows) {
+        String query = queries.get(rows);
+        if (query == null) {
+            query = getDatabase().buildInsertQuery(table, columns, columnCount, rows);
+            queries.put(rows, query);
+        }
+        return query;
+    }
+}
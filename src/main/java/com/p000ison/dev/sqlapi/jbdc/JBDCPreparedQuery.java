@@ -21,211 +21,226 @@ package com.p000ison.dev.sqlapi.jbdc;
 
 
 import com.p000ison.dev.sqlapi.Column;
-import com.p000ison.dev.sqlapi.Database;
+import com.p000ison.dev.sqlapi.ColumnType;
+import com.p000ison.dev.sqlapi.codec.Compression;
 import com.p000ison.dev.sqlapi.exception.QueryException;
 import com.p000ison.dev.sqlapi.query.PreparedQuery;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a JBDCPreparedQuery
+ * <p/>
+ * The values and batches are stored in this object. Only while the query gets executed a connection is leased from
+ * the pool of the database and the statement is prepared on it (or reused if it was already prepared on this connection).
  */
 public class JBDCPreparedQuery implements PreparedQuery {
-    private PreparedStatement preparedStatement;
+    /**
+     * Used for values which have no specific database type
+     */
+    private static final int UNTYPED = Integer.MIN_VALUE;
+    static final long[] NO_KEYS = new long[0];
+
     private final JBDCDatabase database;
     private final String query;
     private boolean autoReset;
+    private final boolean returnGeneratedKeys;
+    private final Parameters parameters = new Parameters();
+    final List<Parameters> batches = new ArrayList<Parameters>();
+    long[] generatedKeys = NO_KEYS;
 
     protected JBDCPreparedQuery(JBDCDatabase database, String query) {
+        this(database, query, false);
+    }
+
+    protected JBDCPreparedQuery(JBDCDatabase database, String query, boolean returnGeneratedKeys) {
         this.query = query;
-        this.preparedStatement = database.prepare(query);
         this.autoReset = database.isAutoReset();
         this.database = database;
+        this.returnGeneratedKeys = returnGeneratedKeys;
     }
 
     @Override
-    public void set(int index, Object value) {
+    public synchronized void set(int index, Object value) {
         if (index < 0) {
             throw new IllegalArgumentException("The index must be more or equal 0!");
         }
 
-        try {
-            try {
-                if (preparedStatement.isClosed()) {
-                    reset();
-                }
-            } catch (AbstractMethodError ignored) {
-            }
-            preparedStatement.setObject(index + 1, value);
-        } catch (SQLException e) {
-            if (autoReset) {
-                reset();
-            }
-            throw new QueryException(e);
-        }
+        parameters.set(index, value, UNTYPED);
     }
 
     @Override
-    public void set(int index, Object value, int databaseType) {
+    public synchronized void set(int index, Object value, int databaseType) {
         if (index < 0) {
             throw new IllegalArgumentException("The index must be more or equal 0!");
         }
 
-        try {
-            try {
-                if (preparedStatement.isClosed()) {
-                    reset();
-                }
-            } catch (AbstractMethodError ignored) {
-            }
-            preparedStatement.setObject(index + 1, value, databaseType);
-        } catch (SQLException e) {
-            if (autoReset) {
-                reset();
-            }
-            throw new QueryException(e);
-        }
+        parameters.set(index, value, databaseType);
     }
 
     @Override
-    public void set(Column column, int index, Object value) {
+    public synchronized void set(Column column, int index, Object value) {
         if (index < 0) {
             throw new IllegalArgumentException("The index must be more or equal 0!");
         }
 
-        index++;
+        ColumnType type = column.getColumnType();
+        switch (type) {
+            case ATOMIC_BOOLEAN:
+                value = value == null ? null : ((AtomicBoolean) value).get();
+                break;
+            case ATOMIC_INTEGER:
+                value = value == null ? null : ((AtomicInteger) value).get();
+                break;
+            case ATOMIC_LONG:
+                value = value == null ? null : ((AtomicLong) value).get();
+                break;
+            case SERIALIZABLE:
+                if (value != null) {
+                    byte[] bytes = column.getCodec().encode(value);
+                    value = column.isCompressing() ? Compression.compress(bytes) : bytes;
+                }
+                break;
+            case UNSUPPORTED:
+                return;
+        }
 
+        parameters.set(index, value, JBDCDatabase.getDatabaseDataType(type));
+    }
+
+    @Override
+    public synchronized void clearParameters() {
+        parameters.clear();
+    }
+
+    @Override
+    public boolean update() {
+        return executeUpdate() != 0;
+    }
+
+    @Override
+    public synchronized int executeUpdate() {
+        PooledConnection connection = database.leaseConnection();
         try {
-            try {
-                if (preparedStatement.isClosed()) {
-                    reset();
-                }
-            } catch (AbstractMethodError ignored) {
-            }
-            int type = JBDCDatabase.getDatabaseDataType(column.getType());
-            if (type != Database.UNSUPPORTED_TYPE) {
-                if (value == null) {
-                    preparedStatement.setNull(index, type);
-                } else {
-                    if (value instanceof AtomicBoolean) {
-                        value = ((AtomicBoolean) value).get();
-                    }
-                    if (value instanceof AtomicInteger) {
-                        value = ((AtomicInteger) value).get();
-                    }
-                    if (value instanceof AtomicLong) {
-                        value = ((AtomicLong) value).get();
-                    }
-                    preparedStatement.setObject(index, value, type);
-                }
-            } else if (column.isSerializable()) {
-                if (value == null) {
-                    preparedStatement.setNull(index, Types.BLOB);
-                } else {
-                    ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
-                    ObjectOutput outputStream = new ObjectOutputStream(byteBuffer);
-                    outputStream.writeObject(value);
-                    byte[] bytes = byteBuffer.toByteArray();
+            PreparedStatement statement = prepareStatement(connection);
+            int updated = statement.executeUpdate();
 
-                    preparedStatement.setBytes(index, bytes);
-                }
+            if (returnGeneratedKeys) {
+                generatedKeys = readGeneratedKeys(statement);
             }
 
+            return updated;
         } catch (SQLException e) {
-            if (autoReset) {
-                reset();
-            }
-            throw new QueryException(e);
-        } catch (IOException e) {
+            handleException(connection);
             throw new QueryException(e);
+        } finally {
+            database.releaseConnection(connection);
         }
     }
 
-    @Override
-    public void clearParameters() {
+    /**
+     * Executes this query with the stored values on a new statement. The connection is returned to the pool at once, the
+     * result set and its statement must be closed by the caller.
+     *
+     * @return The result set
+     * @deprecated Use a {@link com.p000ison.dev.sqlapi.query.PreparedSelectQuery}, it reads the results into objects
+     */
+    @Deprecated
+    public synchronized ResultSet query() {
         try {
-            if (preparedStatement.isClosed()) {
-                reset();
-            } else {
-                preparedStatement.clearParameters();
-            }
-        } catch (AbstractMethodError ignored) {
+            return getPreparedStatement().executeQuery();
         } catch (SQLException e) {
-            if (autoReset) {
-                reset();
-            }
             throw new QueryException(e);
         }
     }
 
-    @Override
-    public boolean update() {
-        synchronized (database) {
-            try {
-                try {
-                    if (preparedStatement.isClosed()) {
-                        reset();
-                    }
-                } catch (AbstractMethodError ignored) {
-                }
-                return preparedStatement.executeUpdate() != 0;
-            } catch (SQLException e) {
-                if (autoReset) {
-                    reset();
-                }
-                throw new QueryException(e);
-            }
+    /**
+     * Prepares a new statement for this query on a connection of the pool and binds the stored values. The connection is
+     * returned to the pool at once, the statement must be closed by the caller.
+     *
+     * @return The statement
+     * @deprecated The statements are prepared on the connections of the pool while a query runs
+     */
+    @Deprecated
+    protected synchronized PreparedStatement getPreparedStatement() {
+        PooledConnection connection = database.leaseConnection();
+        try {
+            PreparedStatement statement = connection.getConnection().prepareStatement(query);
+            parameters.bind(statement);
+            return statement;
+        } catch (SQLException e) {
+            throw new QueryException(e);
+        } finally {
+            database.releaseConnection(connection);
         }
     }
 
-    public ResultSet query() {
-        synchronized (database) {
-            try {
-                try {
-                    if (preparedStatement.isClosed()) {
-                        reset();
-                    }
-                } catch (AbstractMethodError ignored) {
-                }
-                return preparedStatement.executeQuery();
-            } catch (SQLException e) {
-                if (autoReset) {
-                    reset();
-                }
-                throw new QueryException(e);
-            }
+    /**
+     * Prepares the statement on the connection and binds the stored values
+     *
+     * @param connection The leased connection
+     * @return The statement which is ready to execute
+     * @throws SQLException If the preparation failed
+     */
+    PreparedStatement prepareStatement(PooledConnection connection) throws SQLException {
+        PreparedStatement statement = connection.prepare(query, returnGeneratedKeys);
+        statement.clearParameters();
+        parameters.bind(statement);
+        return statement;
+    }
+
+    /**
+     * Reopens the statement on this connection the next time if {@link #isAutoReset()} is true
+     *
+     * @param connection The connection which failed
+     */
+    void handleException(PooledConnection connection) {
+        if (autoReset) {
+            connection.invalidate(query, returnGeneratedKeys);
         }
     }
 
-    @Override
-    public void close() {
+    static long[] readGeneratedKeys(PreparedStatement statement) throws SQLException {
+        ResultSet result = statement.getGeneratedKeys();
+        if (result == null) {
+            return NO_KEYS;
+        }
+
         try {
-            try {
-                if (preparedStatement.isClosed()) {
-                    return;
+            long[] keys = new long[8];
+            int size = 0;
+
+            while (result.next()) {
+                if (size == keys.length) {
+                    keys = Arrays.copyOf(keys, size * 2);
                 }
-            } catch (AbstractMethodError ignored) {
+                keys[size++] = result.getLong(1);
             }
-            getPreparedStatement().close();
-        } catch (SQLException e) {
-            throw new QueryException(e);
+
+            return size == keys.length ? keys : Arrays.copyOf(keys, size);
+        } finally {
+            result.close();
         }
     }
 
+    @Override
+    public synchronized void close() {
+        parameters.clear();
+        batches.clear();
+    }
 
     @Override
-    public void reset() {
-        preparedStatement = database.prepare(query);
+    public synchronized void reset() {
+        parameters.clear();
+        batches.clear();
     }
 
     @Override
@@ -234,63 +249,84 @@ public class JBDCPreparedQuery implements PreparedQuery {
     }
 
     @Override
-    public void addBatch() {
-        synchronized (database) {
-            try {
-                try {
-                    if (preparedStatement.isClosed()) {
-                        reset();
-                    }
-                } catch (AbstractMethodError ignored) {
-                }
-                preparedStatement.addBatch();
-            } catch (SQLException e) {
-                if (autoReset) {
-                    reset();
-                }
-                throw new QueryException(e);
-            }
-        }
+    public synchronized void addBatch() {
+        batches.add(parameters.copy());
     }
 
     @Override
-    public void clearBatch() {
-        synchronized (database) {
-            try {
-                try {
-                    if (preparedStatement.isClosed()) {
-                        reset();
-                    }
-                } catch (AbstractMethodError ignored) {
-                }
-                preparedStatement.clearBatch();
-            } catch (SQLException e) {
-                if (autoReset) {
-                    reset();
-                }
-                throw new QueryException(e);
+    public synchronized void clearBatch() {
+        batches.clear();
+    }
+
+    @Override
+    public synchronized void executeBatches() {
+        if (batches.isEmpty()) {
+            return;
+        }
+
+        PooledConnection connection = database.leaseConnection();
+        boolean reusable = false;
+        try {
+            PreparedStatement statement = connection.prepare(query, returnGeneratedKeys);
+            statement.clearParameters();
+
+            if (returnGeneratedKeys && !database.isBatchGeneratedKeysSupported()) {
+                generatedKeys = executeSingle(statement);
+                reusable = true;
+                return;
             }
+
+            for (Parameters batch : batches) {
+                batch.bind(statement);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+
+            if (returnGeneratedKeys) {
+                generatedKeys = readGeneratedKeys(statement);
+            }
+            //some drivers keep the rows of the batch in the statement
+            statement.clearBatch();
+            reusable = database.isBatchStatementReusable();
+        } catch (SQLException e) {
+            throw new QueryException(e);
+        } finally {
+            batches.clear();
+            if (!reusable) {
+                //the statement might still hold a part of the batch
+                connection.invalidate(query, returnGeneratedKeys);
+            }
+            database.releaseConnection(connection);
         }
     }
 
-    @Override
-    public void executeBatches() {
-        synchronized (database) {
-            try {
-                try {
-                    if (preparedStatement.isClosed()) {
-                        reset();
-                    }
-                } catch (AbstractMethodError ignored) {
-                }
-                preparedStatement.executeBatch();
-            } catch (SQLException e) {
-                if (autoReset) {
-                    reset();
-                }
-                throw new QueryException(e);
+    /**
+     * Executes every batch on its own, for drivers which only return the key of the last row of a batch
+     *
+     * @param statement The statement
+     * @return The generated keys in the order of the batches
+     * @throws SQLException If the execution failed
+     */
+    private long[] executeSingle(PreparedStatement statement) throws SQLException {
+        long[] keys = new long[batches.size()];
+
+        for (int i = 0; i < keys.length; i++) {
+            batches.get(i).bind(statement);
+            statement.executeUpdate();
+
+            long[] generated = readGeneratedKeys(statement);
+            if (generated.length == 0) {
+                return Arrays.copyOf(keys, i);
             }
+            keys[i] = generated[0];
         }
+
+        return keys;
+    }
+
+    @Override
+    public synchronized long[] getGeneratedKeys() {
+        return generatedKeys;
     }
 
     @Override
@@ -298,11 +334,141 @@ public class JBDCPreparedQuery implements PreparedQuery {
         return autoReset;
     }
 
-    protected PreparedStatement getPreparedStatement() {
-        return preparedStatement;
+    /**
+     * Gets a key for the values which are currently set. Two keys are equal if the same values are set.
+     *
+     * @return The key
+     */
+    synchronized Object getParameterKey() {
+        return parameters.key();
+    }
+
+    protected String getQuery() {
+        return query;
     }
 
     protected JBDCDatabase getDatabase() {
         return database;
     }
+
+    /**
+     * Holds the values of the parameters until they get bound to a statement
+     */
+    static final class Parameters {
+        private Object[] values;
+        private int[] types;
+        private int size;
+
+        Parameters() {
+            this(new Object[8], new int[8], 0);
+        }
+
+        private Parameters(Object[] values, int[] types, int size) {
+            this.values = values;
+            this.types = types;
+            this.size = size;
+        }
+
+        void set(int index, Object value, int type) {
+            if (index >= values.length) {
+                int length = Math.max(index + 1, values.length * 2);
+                values = Arrays.copyOf(values, length);
+                types = Arrays.copyOf(types, length);
+            }
+
+            values[index] = value;
+            types[index] = type;
+
+            if (index >= size) {
+                size = index + 1;
+            }
+        }
+
+        void clear() {
+            Arrays.fill(values, 0, size, null);
+            size = 0;
+        }
+
+        Key key() {
+            return new Key(Arrays.copyOf(values, size));
+        }
+
+        Parameters copy() {
+            return new Parameters(Arrays.copyOf(values, size), Arrays.copyOf(types, size), size);
+        }
+
+        void bind(PreparedStatement statement) throws SQLException {
+            bind(statement, 0);
+        }
+
+        /**
+         * Estimates how many bytes the values need when they are sent. Strings can need three bytes per character and
+         * binary values might get escaped.
+         *
+         * @return The estimated amount of bytes
+         */
+        long estimateSize() {
+            long bytes = 0;
+            for (int i = 0; i < size; i++) {
+                Object value = values[i];
+
+                if (value instanceof byte[]) {
+                    bytes += ((byte[]) value).length * 2L;
+                } else if (value instanceof String) {
+                    bytes += ((String) value).length() * 3L;
+                } else {
+                    bytes += 16;
+                }
+            }
+            return bytes;
+        }
+
+        /**
+         * Binds the values to the statement, starting after the offset
+         *
+         * @param statement The statement
+         * @param offset    The amount of parameters before the first value
+         * @throws SQLException If binding failed
+         */
+        void bind(PreparedStatement statement, int offset) throws SQLException {
+            for (int i = 0; i < size; i++) {
+                int index = offset + i + 1;
+                Object value = values[i];
+                int type = types[i];
+
+                if (type == UNTYPED) {
+                    statement.setObject(index, value);
+                } else if (value == null) {
+                    statement.setNull(index, type);
+                } else if (value instanceof byte[]) {
+                    statement.setBytes(index, (byte[]) value);
+                } else {
+                    statement.setObject(index, value, type);
+                }
+            }
+        }
+    }
+
+    /**
+     * A copy of the values of some parameters which can be used as key
+     */
+    private static final class Key {
+        private final Object[] values;
+        private final int hashCode;
+
+        Key(Object[] values) {
+            this.values = values;
+            this.hashCode = Arrays.deepHashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Key && hashCode == ((Key) o).hashCode && Arrays.deepEquals(values, ((Key) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
 }
@@ -21,105 +21,293 @@ package com.p000ison.dev.sqlapi.jbdc;
 
 
 import com.p000ison.dev.sqlapi.Column;
+import com.p000ison.dev.sqlapi.ColumnType;
 import com.p000ison.dev.sqlapi.RegisteredTable;
 import com.p000ison.dev.sqlapi.TableObject;
+import com.p000ison.dev.sqlapi.codec.SerializationCodec;
 import com.p000ison.dev.sqlapi.exception.QueryException;
 import com.p000ison.dev.sqlapi.query.PreparedSelectQuery;
+import com.p000ison.dev.sqlapi.query.ResultHandler;
+import com.p000ison.dev.sqlapi.query.ResultIterator;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Represents a JBDCPreparedQuery
  */
 public class JBDCPreparedSelectQuery<T extends TableObject> extends JBDCPreparedQuery implements PreparedSelectQuery<T> {
     private final RegisteredTable table;
+    /**
+     * The selected columns in the order of the query
+     */
+    private final List<Column> columns;
+    private final ColumnType[] types;
+    /**
+     * The indexes of the selected columns in the registered columns of the table, null if all columns are selected
+     */
+    private final int[] positions;
+    /**
+     * The indexes of the registered columns which are not selected
+     */
+    private final int[] unselected;
+    private volatile int fetchSize;
+    private volatile boolean trackingChanges = true;
+    private volatile ResultCache<T> resultCache;
 
 
     protected JBDCPreparedSelectQuery(JBDCDatabase database, String query, RegisteredTable table) {
+        this(database, query, table, table.getRegisteredColumns());
+    }
+
+    protected JBDCPreparedSelectQuery(JBDCDatabase database, String query, RegisteredTable table, List<Column> columns) {
         super(database, query);
         this.table = table;
+        this.columns = columns;
+
+        List<Column> registeredColumns = table.getRegisteredColumns();
+        if (columns.equals(registeredColumns)) {
+            this.types = table.getColumnTypes();
+            this.positions = null;
+            this.unselected = null;
+        } else {
+            this.types = new ColumnType[columns.size()];
+            this.positions = new int[columns.size()];
+            for (int i = 0; i < types.length; i++) {
+                Column column = columns.get(i);
+                types[i] = column.getColumnType();
+                positions[i] = registeredColumns.indexOf(column);
+                if (positions[i] < 0) {
+                    throw new QueryException("The column %s does not belong to the table %s!", column.getName(), table.getName());
+                }
+            }
+
+            this.unselected = new int[registeredColumns.size() - columns.size()];
+            int next = 0;
+            for (int i = 0; i < registeredColumns.size(); i++) {
+                if (!columns.contains(registeredColumns.get(i))) {
+                    unselected[next++] = i;
+                }
+            }
+        }
     }
 
     @Override
-    public <C extends Collection<T>> C getResults(C collection) {
-        synchronized (getDatabase()) {
-            ResultSet result = null;
-            try {
+    public synchronized <C extends Collection<T>> C getResults(C collection) {
+        ResultCache<T> cache = resultCache;
+        if (cache == null) {
+            return read(collection);
+        }
+
+        collection.addAll(getCachedResults(cache));
+        return collection;
+    }
+
+    @Override
+    public List<T> getResults() {
+        ResultCache<T> cache = resultCache;
+        if (cache == null) {
+            return read(new ArrayList<T>());
+        }
+
+        return getCachedResults(cache);
+    }
+
+    /**
+     * Gets the results for the current values from the cache or reads and caches them
+     *
+     * @param cache The cache
+     * @return A unmodifiable list of the results
+     */
+    private synchronized List<T> getCachedResults(ResultCache<T> cache) {
+        Object key = getParameterKey();
+        //read the count before querying, so writes which happen meanwhile make the result invalid
+        long modification = table.getModificationCount();
+
+        List<T> results = cache.get(key, modification);
+        if (results == null) {
+            results = Collections.unmodifiableList(read(new ArrayList<T>()));
+            cache.put(key, modification, results);
+        }
+        return results;
+    }
+
+    private <C extends Collection<T>> C read(C collection) {
+        PooledConnection connection = getDatabase().leaseConnection();
+        PreparedStatement statement = null;
+        ResultSet result = null;
+        try {
+            statement = prepareStatement(connection);
+            result = executeQuery(statement);
+
+            while (result.next()) {
+                collection.add(readRow(result));
+            }
+        } catch (SQLException e) {
+            handleException(connection);
+            throw new QueryException(e);
+        } finally {
+            finish(connection, statement, result);
+        }
+        return collection;
+    }
+
+    @Override
+    public ResultIterator<T> iterate() {
+        PooledConnection connection = getDatabase().leaseConnection();
+        PreparedStatement statement = null;
+        try {
+            ResultSet result;
+            synchronized (this) {
+                statement = prepareStatement(connection);
+                result = executeQuery(statement);
+            }
+            return new JBDCResultIterator<T>(this, connection, statement, result);
+        } catch (SQLException e) {
+            handleException(connection);
+            finish(connection, statement, null);
+            throw new QueryException(e);
+        }
+    }
+
+    @Override
+    public void forEach(ResultHandler<T> handler) {
+        ResultIterator<T> iterator = iterate();
+        try {
+            while (iterator.hasNext()) {
+                handler.handle(iterator.next());
+            }
+        } finally {
+            iterator.close();
+        }
+    }
+
+    @Override
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public void setTrackingChanges(boolean trackingChanges) {
+        this.trackingChanges = trackingChanges;
+    }
+
+    @Override
+    public void setResultCache(int maxSize, long timeToLive, TimeUnit unit) {
+        resultCache = maxSize > 0 ? new ResultCache<T>(maxSize, unit.toMillis(timeToLive)) : null;
+    }
+
+    @Override
+    public void clearResultCache() {
+        ResultCache<T> cache = resultCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private ResultSet executeQuery(PreparedStatement statement) throws SQLException {
+        if (fetchSize != 0) {
+            statement.setFetchSize(fetchSize);
+        }
+        return statement.executeQuery();
+    }
+
+    /**
+     * Closes the result set, resets the fetch size of the statement and returns the connection
+     */
+    void finish(PooledConnection connection, PreparedStatement statement, ResultSet result) {
+        try {
+            JBDCDatabase.handleClose(null, result);
+
+            if (statement != null && fetchSize != 0) {
                 try {
-                    if (getPreparedStatement().isClosed()) {
-                        reset();
-                    }
-                } catch (AbstractMethodError ignored) {
+                    statement.setFetchSize(0);
+                } catch (SQLException ignored) {
                 }
+            }
+        } finally {
+            getDatabase().releaseConnection(connection);
+        }
+    }
 
-                result = getPreparedStatement().executeQuery();
-                List<Column> columns = table.getRegisteredColumns();
-
-                while (result.next()) {
-                    T object = table.createNewInstance();
-
-                    for (int i = 0; i < columns.size(); i++) {
-                        Column column = columns.get(i);
-
-                        Object obj = null;
-
-
-                        if (JBDCDatabase.isSupportedByDatabase(column.getType())) {
-                            obj = JBDCDatabase.getDatabaseFromResultSet(i + 1, result, column.getType());
-                        } else {
-                            ObjectInputStream inputStream = null;
-                            try {
-                                InputStream selectedInputStream = result.getBinaryStream(i + 1);
-                                if (selectedInputStream != null) {
-                                    inputStream = new ObjectInputStream(selectedInputStream);
-                                    obj = inputStream.readObject();
-                                }
-                            } catch (IOException e) {
-                                throw new QueryException(e);
-                            } catch (ClassNotFoundException e) {
-                                throw new QueryException(e);
-                            } finally {
-                                try {
-                                    if (inputStream != null) {
-                                        inputStream.close();
-                                    }
-                                } catch (IOException e) {
-                                    throw new QueryException(e);
-                                }
-                            }
-                        }
-
-                        if (column.isSaveInputAfterLoading()) {
-                            //set this value after returning getResults
-                            table.storeColumnValue(column, obj, object);
-                        } else {
-                            column.setValue(object, obj);
-                        }
-                    }
-
-                    collection.add(object);
-                }
-            } catch (SQLException e) {
-                if (isAutoReset()) {
-                    reset();
+    /**
+     * Reads the current row of the result set
+     *
+     * @param result The result set
+     * @return The new TableObject
+     * @throws SQLException If reading failed
+     */
+    T readRow(ResultSet result) throws SQLException {
+        T object = table.createNewInstance();
+        //projections always need a snapshot, otherwise they could be saved as complete entries
+        boolean snapshot = trackingChanges || positions != null;
+        Object[] values = snapshot && table.isTrackingChanges() ? new Object[table.getRegisteredColumns().size()] : null;
+
+        for (int i = 0; i < types.length; i++) {
+            Column column = columns.get(i);
+            ColumnType type = types[i];
+
+            if (values == null && !column.isSaveInputAfterLoading()) {
+                //primitive values are set directly, so they do not need to be boxed
+                switch (type) {
+                    case PRIMITIVE_INT:
+                        column.setInt(object, result.getInt(i + 1));
+                        continue;
+                    case PRIMITIVE_LONG:
+                        column.setLong(object, result.getLong(i + 1));
+                        continue;
+                    case PRIMITIVE_DOUBLE:
+                        column.setDouble(object, result.getDouble(i + 1));
+                        continue;
                 }
-                throw new QueryException(e);
-            } finally {
-                JBDCDatabase.handleClose(null, result);
             }
-            return collection;
+
+            Object obj = readValue(result, i + 1, column, type);
+
+            if (column.isSaveInputAfterLoading()) {
+                //set this value after returning getResults
+                table.storeColumnValue(column, obj, object);
+            } else {
+                column.setValue(object, obj);
+            }
+
+            if (values != null) {
+                values[positions == null ? i : positions[i]] = obj;
+            }
         }
+
+        if (positions != null) {
+            //the columns which were not selected are never written
+            table.takePartialSnapshot(object, values, unselected);
+        } else if (values != null) {
+            table.takeSnapshot(object, values);
+        }
+
+        return object;
     }
 
-    @Override
-    public List<T> getResults() {
-        return getResults(new ArrayList<T>());
+    /**
+     * Reads a value of the current row like it is set to the column
+     *
+     * @param result The result set
+     * @param index  The index in the result set, starting at 1
+     * @param column The column
+     * @param type   The type of the column
+     * @return The value
+     * @throws SQLException If reading failed
+     */
+    static Object readValue(ResultSet result, int index, Column column, ColumnType type) throws SQLException {
+        if (type == ColumnType.SERIALIZABLE) {
+            byte[] bytes = result.getBytes(index);
+            return bytes == null ? null : SerializationCodec.decode(column.getCodec(), bytes, column.getType());
+        }
+
+        return JBDCDatabase.getDatabaseFromResultSet(index, result, type);
     }
 }
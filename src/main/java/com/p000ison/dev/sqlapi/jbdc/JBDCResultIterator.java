@@ -0,0 +1,130 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 04.01.13 11:20
+ */
+
+package com.p000ison.dev.sqlapi.jbdc;
+
+import com.p000ison.dev.sqlapi.TableObject;
+import com.p000ison.dev.sqlapi.exception.QueryException;
+import com.p000ison.dev.sqlapi.query.ResultIterator;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+
+/**
+ * Represents a JBDCResultIterator
+ * <p/>
+ * Reads the rows of a result set while iterating. The leased connection is returned once the last row was read, reading
+ * failed or the iterator was closed. If the iterator gets collected without being closed, the connection is returned
+ * the next time the pool leases a connection.
+ */
+final class JBDCResultIterator<T extends TableObject> implements ResultIterator<T> {
+    private final JBDCPreparedSelectQuery<T> query;
+    private final Resources resources;
+    /**
+     * The handle of the pool which watches this iterator, null if the connection is pinned
+     */
+    private final Object watch;
+    private T next;
+    private boolean closed;
+
+    JBDCResultIterator(JBDCPreparedSelectQuery<T> query, PooledConnection connection, PreparedStatement statement, ResultSet result) {
+        this.query = query;
+        this.resources = new Resources(query, connection, statement, result);
+        this.watch = query.getDatabase().watchConnection(this, connection, resources);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (closed) {
+            return false;
+        }
+
+        try {
+            if (resources.result.next()) {
+                next = query.readRow(resources.result);
+            } else {
+                close();
+            }
+        } catch (SQLException e) {
+            query.handleException(resources.connection);
+            close();
+            throw new QueryException(e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+
+        return next != null;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        T object = next;
+        next = null;
+        return object;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("The results can not be removed!");
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        query.getDatabase().unwatchConnection(watch);
+        resources.run();
+    }
+
+    /**
+     * The resources of the iterator, they are closed by the pool if the iterator was abandoned, so they must not
+     * reference the iterator
+     */
+    private static final class Resources implements Runnable {
+        private final JBDCPreparedSelectQuery<?> query;
+        private final PooledConnection connection;
+        private final PreparedStatement statement;
+        private final ResultSet result;
+
+        private Resources(JBDCPreparedSelectQuery<?> query, PooledConnection connection, PreparedStatement statement, ResultSet result) {
+            this.query = query;
+            this.connection = connection;
+            this.statement = statement;
+            this.result = result;
+        }
+
+        @Override
+        public void run() {
+            query.finish(connection, statement, result);
+        }
+    }
+}
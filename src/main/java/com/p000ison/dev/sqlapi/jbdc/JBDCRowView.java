@@ -0,0 +1,176 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 11.01.13 17:58
+ */
+
+package com.p000ison.dev.sqlapi.jbdc;
+
+import com.p000ison.dev.sqlapi.Column;
+import com.p000ison.dev.sqlapi.ColumnType;
+import com.p000ison.dev.sqlapi.query.RowView;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Represents a JBDCRowView
+ * <p/>
+ * The values of primitive columns are stored in a long array (doubles as their bits), all other values as objects.
+ */
+final class JBDCRowView implements RowView {
+    private final List<Column> columns;
+    private final ColumnType[] types;
+    private final long[] primitives;
+    private final Object[] values;
+
+    JBDCRowView(List<Column> columns, ColumnType[] types, ResultSet result) throws SQLException {
+        this.columns = columns;
+        this.types = types;
+        this.primitives = new long[types.length];
+        this.values = new Object[types.length];
+
+        for (int i = 0; i < types.length; i++) {
+            int index = i + 1;
+            switch (types[i]) {
+                case PRIMITIVE_BOOLEAN:
+                    primitives[i] = result.getBoolean(index) ? 1 : 0;
+                    break;
+                case PRIMITIVE_BYTE:
+                case PRIMITIVE_SHORT:
+                case PRIMITIVE_INT:
+                case PRIMITIVE_CHAR:
+                    primitives[i] = result.getInt(index);
+                    break;
+                case PRIMITIVE_LONG:
+                    primitives[i] = result.getLong(index);
+                    break;
+                case PRIMITIVE_FLOAT:
+                case PRIMITIVE_DOUBLE:
+                    primitives[i] = Double.doubleToRawLongBits(result.getDouble(index));
+                    break;
+                default:
+                    values[i] = JBDCPreparedSelectQuery.readValue(result, index, columns.get(i), types[i]);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return types.length;
+    }
+
+    @Override
+    public Column getColumn(int index) {
+        return columns.get(index);
+    }
+
+    @Override
+    public Object get(int index) {
+        switch (types[index]) {
+            case PRIMITIVE_BOOLEAN:
+                return primitives[index] != 0;
+            case PRIMITIVE_BYTE:
+                return (byte) primitives[index];
+            case PRIMITIVE_SHORT:
+                return (short) primitives[index];
+            case PRIMITIVE_INT:
+                return (int) primitives[index];
+            case PRIMITIVE_CHAR:
+                return (char) primitives[index];
+            case PRIMITIVE_LONG:
+                return primitives[index];
+            case PRIMITIVE_FLOAT:
+                return (float) getDouble(index);
+            case PRIMITIVE_DOUBLE:
+                return getDouble(index);
+            default:
+                return values[index];
+        }
+    }
+
+    @Override
+    public int getInt(int index) {
+        return (int) getLong(index);
+    }
+
+    @Override
+    public long getLong(int index) {
+        switch (types[index]) {
+            case PRIMITIVE_FLOAT:
+            case PRIMITIVE_DOUBLE:
+                return (long) getDouble(index);
+            case PRIMITIVE_BOOLEAN:
+            case PRIMITIVE_BYTE:
+            case PRIMITIVE_SHORT:
+            case PRIMITIVE_INT:
+            case PRIMITIVE_CHAR:
+            case PRIMITIVE_LONG:
+                return primitives[index];
+            default:
+                return toNumber(index).longValue();
+        }
+    }
+
+    @Override
+    public double getDouble(int index) {
+        switch (types[index]) {
+            case PRIMITIVE_FLOAT:
+            case PRIMITIVE_DOUBLE:
+                return Double.longBitsToDouble(primitives[index]);
+            case PRIMITIVE_BOOLEAN:
+            case PRIMITIVE_BYTE:
+            case PRIMITIVE_SHORT:
+            case PRIMITIVE_INT:
+            case PRIMITIVE_CHAR:
+            case PRIMITIVE_LONG:
+                return primitives[index];
+            default:
+                return toNumber(index).doubleValue();
+        }
+    }
+
+    @Override
+    public boolean getBoolean(int index) {
+        Object value = values[index];
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return getLong(index) != 0;
+    }
+
+    @Override
+    public String getString(int index) {
+        Object value = get(index);
+        return value == null ? null : value.toString();
+    }
+
+    private Number toNumber(int index) {
+        Object value = values[index];
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Number) {
+            return (Number) value;
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        } else if (value instanceof Character) {
+            return (int) (Character) value;
+        }
+
+        throw new ClassCastException(String.format("The value of the column %s is not a number!", columns.get(index).getName()));
+    }
+}
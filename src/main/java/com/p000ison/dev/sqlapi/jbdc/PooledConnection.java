@@ -0,0 +1,216 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 30.12.12 14:12
+ */
+
+package com.p000ison.dev.sqlapi.jbdc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A connection which is managed by the {@link ConnectionPool}. It keeps the statements which were prepared on it, so
+ * they can be reused the next time this connection is leased. If there are too many statements the least recently used
+ * one gets closed.
+ */
+final class PooledConnection {
+    /**
+     * The time in seconds we wait for a validation
+     */
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    private final Connection connection;
+    private final int maxStatements;
+    private final Map<String, PreparedStatement> statements;
+    /**
+     * The statements which return the generated keys
+     */
+    private final Map<String, PreparedStatement> keyStatements;
+    private long lastUsed;
+
+    PooledConnection(Connection connection, int maxStatements) {
+        this.connection = connection;
+        this.maxStatements = maxStatements;
+        this.statements = createStatementCache();
+        this.keyStatements = createStatementCache();
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    private Map<String, PreparedStatement> createStatementCache() {
+        return new LinkedHashMap<String, PreparedStatement>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > maxStatements) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Gets the statement for this query. If there is no statement yet it gets prepared.
+     *
+     * @param query The query to prepare
+     * @return The prepared statement
+     * @throws SQLException If the preparation failed
+     */
+    PreparedStatement prepare(String query) throws SQLException {
+        return prepare(query, false);
+    }
+
+    /**
+     * Gets the statement for this query. If there is no statement yet it gets prepared.
+     *
+     * @param query               The query to prepare
+     * @param returnGeneratedKeys Whether the statement should return the generated keys
+     * @return The prepared statement
+     * @throws SQLException If the preparation failed
+     */
+    PreparedStatement prepare(String query, boolean returnGeneratedKeys) throws SQLException {
+        Map<String, PreparedStatement> cache = getStatements(returnGeneratedKeys);
+        PreparedStatement statement = cache.get(query);
+
+        if (statement != null) {
+            try {
+                if (!statement.isClosed()) {
+                    return statement;
+                }
+            } catch (AbstractMethodError ignored) {
+                return statement;
+            }
+        }
+
+        if (returnGeneratedKeys) {
+            statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+        } else {
+            statement = connection.prepareStatement(query);
+        }
+        cache.put(query, statement);
+        return statement;
+    }
+
+    private Map<String, PreparedStatement> getStatements(boolean returnGeneratedKeys) {
+        return returnGeneratedKeys ? keyStatements : statements;
+    }
+
+    /**
+     * Closes and forgets the statement of this query, so it gets prepared again the next time.
+     *
+     * @param query The query
+     */
+    void invalidate(String query) {
+        invalidate(query, false);
+    }
+
+    /**
+     * Closes and forgets the statement of this query, so it gets prepared again the next time.
+     *
+     * @param query               The query
+     * @param returnGeneratedKeys Whether the statement returns the generated keys
+     */
+    void invalidate(String query, boolean returnGeneratedKeys) {
+        PreparedStatement statement = getStatements(returnGeneratedKeys).remove(query);
+        if (statement != null) {
+            closeQuietly(statement);
+        }
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    void touch() {
+        lastUsed = System.currentTimeMillis();
+    }
+
+    boolean isClosed() {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Checks whether this connection is still usable
+     *
+     * @return Whether the connection is valid
+     */
+    boolean isValid() {
+        try {
+            try {
+                return connection.isValid(VALIDATION_TIMEOUT);
+            } catch (AbstractMethodError ignored) {
+                //the driver does not support this, so we test it the old way
+            }
+
+            Statement statement = null;
+            ResultSet result = null;
+            try {
+                statement = connection.createStatement();
+                result = statement.executeQuery("SELECT 1;");
+                return result.next();
+            } finally {
+                if (result != null) {
+                    result.close();
+                }
+                if (statement != null) {
+                    statement.close();
+                }
+            }
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Closes all prepared statements and the connection itself
+     */
+    void close() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        for (PreparedStatement statement : keyStatements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+        keyStatements.clear();
+
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 09.01.13 17:05
+ */
+
+package com.p000ison.dev.sqlapi.jbdc;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the results of a select query mapped by the values of its parameters. A result expires after the time to live
+ * or as soon as the table was modified since it was read. If the cache is full the least recently used result gets
+ * evicted.
+ */
+final class ResultCache<T> {
+    private final int maxSize;
+    private final long timeToLive;
+    private final Map<Object, CachedResult<T>> entries;
+
+    /**
+     * @param maxSize    The maximum amount of results
+     * @param timeToLive The time in milliseconds a result is kept, 0 to keep it until the table gets modified
+     */
+    ResultCache(int maxSize, long timeToLive) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The size of the cache must be greater than 0!");
+        }
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("The time to live must not be negative!");
+        }
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        this.entries = new LinkedHashMap<Object, CachedResult<T>>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CachedResult<T>> eldest) {
+                return size() > ResultCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Gets a cached result
+     *
+     * @param key          The values of the parameters
+     * @param modification The current modification count of the table
+     * @return The result or null if there is no valid result
+     */
+    synchronized List<T> get(Object key, long modification) {
+        CachedResult<T> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.modification != modification || (timeToLive > 0 && System.currentTimeMillis() - entry.created > timeToLive)) {
+            entries.remove(key);
+            return null;
+        }
+
+        return entry.results;
+    }
+
+    /**
+     * Stores a result
+     *
+     * @param key          The values of the parameters
+     * @param modification The modification count of the table before the result was read
+     * @param results      The results, they must not be modified anymore
+     */
+    synchronized void put(Object key, long modification, List<T> results) {
+        entries.put(key, new CachedResult<T>(results, modification, System.currentTimeMillis()));
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    private static final class CachedResult<T> {
+        private final List<T> results;
+        private final long modification;
+        private final long created;
+
+        private CachedResult(List<T> results, long modification, long created) {
+            this.results = results;
+            this.modification = modification;
+            this.created = created;
+        }
+    }
+}
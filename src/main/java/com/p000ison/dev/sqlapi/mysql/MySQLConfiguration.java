@@ -26,6 +26,8 @@ import com.p000ison.dev.sqlapi.DatabaseConfiguration;
  */
 public final class MySQLConfiguration extends DatabaseConfiguration {
 
+    public static final int DEFAULT_POOL_SIZE = 4;
+
     public MySQLConfiguration(String user, String password, String host, int port, String database) {
         super("com.mysql.jdbc.Driver");
         setUser(user);
@@ -33,6 +35,7 @@ public final class MySQLConfiguration extends DatabaseConfiguration {
         setPort(port);
         setHost(host);
         setDatabase(database);
+        setPoolSize(DEFAULT_POOL_SIZE);
     }
 
     public String getUser() {
@@ -79,4 +82,32 @@ public final class MySQLConfiguration extends DatabaseConfiguration {
         super.setProperty("host", host);
         return this;
     }
+
+    public MySQLConfiguration setPoolSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The pool size must be greater than 0!");
+        }
+        super.setProperty("poolSize", size);
+        return this;
+    }
+
+    public MySQLConfiguration setIdleTimeout(long timeout) {
+        super.setProperty("idleTimeout", timeout);
+        return this;
+    }
+
+    /**
+     * Sets the estimated amount of bytes the values of one multi-row insert may have. This should be well below the
+     * max_allowed_packet of the server.
+     *
+     * @param bytes The maximum amount of bytes
+     * @return This configuration
+     */
+    public MySQLConfiguration setMaxInsertBytes(long bytes) {
+        if (bytes < 1) {
+            throw new IllegalArgumentException("The maximum amount of bytes must be greater than 0!");
+        }
+        super.setProperty("maxInsertBytes", bytes);
+        return this;
+    }
 }
@@ -20,7 +20,9 @@
 package com.p000ison.dev.sqlapi.mysql;
 
 import com.mysql.jdbc.jdbc2.optional.MysqlDataSource;
+import com.p000ison.dev.sqlapi.Column;
 import com.p000ison.dev.sqlapi.DatabaseConfiguration;
+import com.p000ison.dev.sqlapi.RegisteredTable;
 import com.p000ison.dev.sqlapi.TableBuilder;
 import com.p000ison.dev.sqlapi.TableObject;
 import com.p000ison.dev.sqlapi.exception.DatabaseConnectionException;
@@ -28,6 +30,7 @@ import com.p000ison.dev.sqlapi.jbdc.JBDCDatabase;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 
 /**
  * Represents a SQLiteDatabase
@@ -63,6 +66,50 @@ public final class MySQLDatabase extends JBDCDatabase {
         return new MySQLTableBuilder(table, this);
     }
 
+    @Override
+    protected String buildUpsertQuery(RegisteredTable table, boolean keepCounters) {
+        StringBuilder query = new StringBuilder("INSERT INTO ").append(table.getName()).append(" (");
+        List<Column> columns = table.getRegisteredColumns();
+
+        for (Column column : columns) {
+            query.append(column.getName()).append(',');
+        }
+        query.deleteCharAt(query.length() - 1);
+        query.append(") VALUES (");
+        for (int i = 0; i < columns.size(); i++) {
+            query.append("?,");
+        }
+        query.deleteCharAt(query.length() - 1);
+        query.append(") ON DUPLICATE KEY UPDATE ");
+
+        Column id = null;
+        for (Column column : columns) {
+            if (column.isID()) {
+                id = column;
+                continue;
+            } else if (keepCounters && column.isCounter()) {
+                continue;
+            }
+            query.append(column.getName()).append("=VALUES(").append(column.getName()).append("),");
+        }
+        if (query.charAt(query.length() - 1) == ',') {
+            query.deleteCharAt(query.length() - 1);
+        } else {
+            query.append(id.getName()).append('=').append(id.getName());
+        }
+        query.append(';');
+
+        return query.toString();
+    }
+
+    /**
+     * The driver ignores positive fetch sizes and reads the whole result into memory, so copies stream the rows instead
+     */
+    @Override
+    protected int getCopyFetchSize(int fetchSize) {
+        return fetchSize > 0 ? Integer.MIN_VALUE : fetchSize;
+    }
+
     @Override
     public MySQLConfiguration getConfiguration() {
         return (MySQLConfiguration) super.getConfiguration();
@@ -20,10 +20,10 @@
 package com.p000ison.dev.sqlapi.query;
 
 /**
- * A enum with the default comparators like '<', '>', '>=', '<=', '=' or LIKE;
+ * A enum with the default comparators like '<', '>', '>=', '<=', '=', LIKE or IN;
  */
 public enum CompareOperator {
-    EQUALS("="), GREATER_THAN(">"), LESS_THAN("<"), NOT_EQUAL("!="), LIKE("LIKE");
+    EQUALS("="), GREATER_THAN(">"), LESS_THAN("<"), NOT_EQUAL("!="), LIKE("LIKE"), IN("IN");
 
     private String sign;
 
@@ -0,0 +1,69 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 10.01.13 13:42
+ */
+
+package com.p000ison.dev.sqlapi.query;
+
+import com.p000ison.dev.sqlapi.TableObject;
+
+import java.util.List;
+
+/**
+ * A select query which is built only once. It is immutable, so it can be created at startup and executed by many
+ * threads at the same time. Every execution binds the values on its own, so there is no shared state between them.
+ * <p/>
+ * The values are passed in the order of the prepared comparators of the where part, for example
+ * {@link WhereQuery#preparedEquals(String)}. Comparators which got their value while building keep it.
+ *
+ * @param <T> The type of the TableObjects
+ */
+public interface CompiledQuery<T extends TableObject> {
+
+    /**
+     * Executes the query with these values and returns the results
+     *
+     * @param values The values of the prepared comparators
+     * @return A list of the results
+     * @throws IllegalArgumentException If the amount of values does not match the prepared comparators
+     */
+    List<T> execute(Object... values);
+
+    /**
+     * Executes the query with these values and reads the results one by one while iterating. The iterator must be
+     * closed if it is not iterated to the end.
+     *
+     * @param values The values of the prepared comparators
+     * @return A iterator over the results
+     * @throws IllegalArgumentException If the amount of values does not match the prepared comparators
+     */
+    ResultIterator<T> iterate(Object... values);
+
+    /**
+     * Gets the amount of values which must be passed to {@link #execute(Object...)}
+     *
+     * @return The amount of prepared comparators
+     */
+    int getParameterCount();
+
+    /**
+     * Gets the SQL of this query
+     *
+     * @return The query
+     */
+    String getQuery();
+}
@@ -0,0 +1,59 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 13.01.13 11:02
+ */
+
+package com.p000ison.dev.sqlapi.query;
+
+import com.p000ison.dev.sqlapi.RegisteredTable;
+import com.p000ison.dev.sqlapi.TableObject;
+
+/**
+ * Deletes all entries of a table which match the where part with one statement, without loading them.
+ * <p/>
+ * The where part is built with {@link #where()}, afterwards the query is run with {@link #execute()}:
+ * <pre>
+ * DeleteQuery&lt;Clan&gt; delete = database.delete().from(Clan.class);
+ * delete.where().lessThan("lastSeen", time);
+ * delete.execute();
+ * </pre>
+ * A query without where part fails, unless {@link #all()} was called. Objects which were loaded before lose their
+ * snapshots, so saving them inserts them again with all columns.
+ */
+public interface DeleteQuery<T extends TableObject> {
+
+    DeleteQuery<T> from(Class<T> table);
+
+    DeleteQuery<T> from(RegisteredTable table);
+
+    WhereQuery<T> where();
+
+    /**
+     * Allows deleting all entries of the table if there is no where part
+     *
+     * @return This query
+     */
+    DeleteQuery<T> all();
+
+    /**
+     * Deletes the entries
+     *
+     * @return The amount of deleted entries
+     * @throws com.p000ison.dev.sqlapi.exception.QueryException If there is no where part and {@link #all()} was not called
+     */
+    int execute();
+}
@@ -0,0 +1,71 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 11.01.13 12:48
+ */
+
+package com.p000ison.dev.sqlapi.query;
+
+import com.p000ison.dev.sqlapi.Column;
+import com.p000ison.dev.sqlapi.TableObject;
+
+import java.util.Map;
+
+/**
+ * Calculates aggregates per group of a {@link SelectQuery}. The maps contain the groups in the order the database
+ * returns them, the keys are the values of the group column as returned by the database.
+ */
+public interface GroupedQuery<T extends TableObject> {
+
+    /**
+     * Counts the entries of every group
+     *
+     * @return The amounts mapped by the groups
+     */
+    Map<Object, Long> count();
+
+    /**
+     * Sums the values of a column per group
+     *
+     * @param column The column
+     * @return The sums mapped by the groups
+     */
+    Map<Object, Number> sum(Column column);
+
+    /**
+     * Gets the smallest value of a column per group
+     *
+     * @param column The column
+     * @return The values mapped by the groups
+     */
+    Map<Object, Object> min(Column column);
+
+    /**
+     * Gets the greatest value of a column per group
+     *
+     * @param column The column
+     * @return The values mapped by the groups
+     */
+    Map<Object, Object> max(Column column);
+
+    /**
+     * Gets the average of a column per group
+     *
+     * @param column The column
+     * @return The averages mapped by the groups
+     */
+    Map<Object, Double> avg(Column column);
+}
@@ -45,6 +45,13 @@ public interface PreparedQuery {
      */
     boolean update();
 
+    /**
+     * Updates the database and performs the query like {@link #update()}
+     *
+     * @return The amount of rows which were changed
+     */
+    int executeUpdate();
+
     /**
      * Closes this prepared statement and releases resources
      */
@@ -69,6 +76,14 @@ public interface PreparedQuery {
 
     void executeBatches();
 
+    /**
+     * Gets the keys which were generated by the last {@link #update()} or {@link #executeBatches()}. The keys are in
+     * the same order as the rows were added. This only returns keys if the statement was prepared to return them.
+     *
+     * @return The generated keys or a empty array
+     */
+    long[] getGeneratedKeys();
+
     /**
      * @return Whether we want to reset it automatically
      */
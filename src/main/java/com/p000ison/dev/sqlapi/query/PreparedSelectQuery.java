@@ -23,6 +23,7 @@ import com.p000ison.dev.sqlapi.TableObject;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This is used to prepare queries/statements.
@@ -39,8 +40,67 @@ public interface PreparedSelectQuery<T extends TableObject> extends PreparedQuer
 
     /**
      * Queries the database and returns a list of TableObject. This method should be synchronized with the {@link com.p000ison.dev.sqlapi.Database}.
+     * If the result cache is enabled the returned list is unmodifiable and shared with other callers.
      *
      * @return Whether the update was successfully
+     * @see #setResultCache(int, long, TimeUnit)
      */
     List<T> getResults();
+
+    /**
+     * Queries the database and reads the results one by one while iterating, so not all of them need to be in memory.
+     * The iterator must be closed if it is not iterated to the end.
+     *
+     * @return A iterator over the results
+     */
+    ResultIterator<T> iterate();
+
+    /**
+     * Queries the database and passes the results one by one to the handler. The results are read while handling them.
+     * <p/>
+     * The results hold a connection while the handler runs, so a handler which writes to the database needs a second
+     * connection. With a pool size of 1 it waits 30 seconds for a free connection and fails. Either use a larger pool or
+     * run this in a transaction, then the handler uses the same connection (this does not work while MySQL streams the
+     * rows).
+     *
+     * @param handler The handler
+     */
+    void forEach(ResultHandler<T> handler);
+
+    /**
+     * Sets how many rows the driver should fetch at once. 0 uses the default of the driver. MySQL streams the rows one
+     * by one if this is {@link Integer#MIN_VALUE}, but no other query can use the connection while streaming.
+     *
+     * @param fetchSize The amount of rows
+     */
+    void setFetchSize(int fetchSize);
+
+    /**
+     * Sets whether the results get snapshots, so saving them only writes the changed columns. Results which are only
+     * read do not need them. Without snapshots all columns are written when a result is saved. Does nothing if the
+     * table does not track changes.
+     *
+     * @param trackingChanges Whether the results get snapshots, true by default
+     * @see com.p000ison.dev.sqlapi.annotation.DatabaseTable#trackChanges()
+     */
+    void setTrackingChanges(boolean trackingChanges);
+
+    /**
+     * Caches the results of {@link #getResults()} by the values which are set. A cached result is used until the time
+     * to live is over or until the table is written by the {@link com.p000ison.dev.sqlapi.Database}. Writes of other
+     * programs or direct updates are not noticed. {@link #iterate()} and {@link #forEach(ResultHandler)} always query
+     * the database.
+     * <p/>
+     * The cached objects are shared, so they should not be modified by the callers.
+     *
+     * @param maxSize    The maximum amount of cached results, 0 disables the cache
+     * @param timeToLive The time a result is kept, 0 to keep it until the table gets written
+     * @param unit       The unit of the time to live
+     */
+    void setResultCache(int maxSize, long timeToLive, TimeUnit unit);
+
+    /**
+     * Forgets all cached results
+     */
+    void clearResultCache();
 }
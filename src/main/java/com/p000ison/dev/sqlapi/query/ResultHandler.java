@@ -0,0 +1,37 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 04.01.13 11:20
+ */
+
+package com.p000ison.dev.sqlapi.query;
+
+import com.p000ison.dev.sqlapi.TableObject;
+
+/**
+ * Handles the results of a query one by one, see {@link PreparedSelectQuery#forEach(ResultHandler)}
+ *
+ * @param <T> The type of the TableObjects
+ */
+public interface ResultHandler<T extends TableObject> {
+
+    /**
+     * Handles a result
+     *
+     * @param object The TableObject which was read
+     */
+    void handle(T object);
+}
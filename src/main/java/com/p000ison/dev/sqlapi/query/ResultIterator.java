@@ -0,0 +1,39 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 04.01.13 11:20
+ */
+
+package com.p000ison.dev.sqlapi.query;
+
+import com.p000ison.dev.sqlapi.TableObject;
+
+import java.util.Iterator;
+
+/**
+ * Iterates over the results of a query and reads one row at a time. The iterator holds a connection and the result set
+ * until all rows were read or it gets closed, so if you stop early you must call {@link #close()}. A iterator which is
+ * dropped without closing it only returns its connection after the garbage collector collected it.
+ *
+ * @param <T> The type of the TableObjects
+ */
+public interface ResultIterator<T extends TableObject> extends Iterator<T> {
+
+    /**
+     * Closes the result set and returns the connection. Calling this more than once does nothing.
+     */
+    void close();
+}
@@ -0,0 +1,62 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 11.01.13 17:32
+ */
+
+package com.p000ison.dev.sqlapi.query;
+
+import com.p000ison.dev.sqlapi.Column;
+
+/**
+ * A row of the selected columns of a query. The values are read by their index in the selection. Primitive columns are
+ * kept as primitives, so reading them with the typed getters does not box them.
+ */
+public interface RowView {
+
+    /**
+     * Gets the amount of values of this row
+     *
+     * @return The amount of selected columns
+     */
+    int size();
+
+    /**
+     * Gets the column of a value
+     *
+     * @param index The index of the value
+     * @return The column
+     */
+    Column getColumn(int index);
+
+    /**
+     * Gets a value as it would be set to the column
+     *
+     * @param index The index of the value
+     * @return The value, may be null
+     */
+    Object get(int index);
+
+    int getInt(int index);
+
+    long getLong(int index);
+
+    double getDouble(int index);
+
+    boolean getBoolean(int index);
+
+    String getString(int index);
+}
@@ -23,6 +23,9 @@ import com.p000ison.dev.sqlapi.Column;
 import com.p000ison.dev.sqlapi.RegisteredTable;
 import com.p000ison.dev.sqlapi.TableObject;
 
+import java.util.Iterator;
+import java.util.List;
+
 /**
  * This builds a query and prepares it finally.
  */
@@ -45,9 +48,111 @@ public interface SelectQuery<T extends TableObject> {
 
     SelectQuery<T> limit(int max);
 
+    /**
+     * Limits the results like LIMIT from,to. The first rows are still read by the database, so prefer
+     * {@link #pageAfter(Column, Object, int)} for deep pages.
+     *
+     * @param from The amount of rows to skip
+     * @param to   The maximum amount of rows
+     * @return This query
+     */
     SelectQuery<T> limit(int from, int to);
 
+    /**
+     * Selects only the entries whose key is greater than the last value, ordered by the key and limited to the size.
+     * The where part is kept. If the key is indexed the database can seek to the first entry of the page directly.
+     *
+     * @param key       The column to page by, it must be unique like the id
+     * @param lastValue The key of the last entry of the previous page or null for the first page
+     * @param size      The maximum amount of entries of a page
+     * @return This query
+     */
+    SelectQuery<T> pageAfter(Column key, Object lastValue, int size);
+
+    /**
+     * Walks all results page by page using {@link #pageAfter(Column, Object, int)}. The query is compiled once, so it
+     * can be changed afterwards. The query must not contain prepared values.
+     *
+     * @param key  The column to page by, it must be unique like the id
+     * @param size The maximum amount of entries of a page
+     * @return A iterator over the pages, every page is a list of entries
+     */
+    Iterator<List<T>> pages(Column key, int size);
+
+    /**
+     * Selects only these columns. The results of {@link #prepare()} are partially loaded objects, all other columns keep
+     * the values they got from the constructor. If the table tracks changes, saving such a object only writes the
+     * changed columns which were selected. Otherwise saving it fails, because all columns would be written. Partially
+     * loaded objects are never put into the entity cache.
+     *
+     * @param columns The columns to select, nothing to select all columns again
+     * @return This query
+     */
+    SelectQuery<T> select(Column... columns);
+
+    /**
+     * Queries the selected columns and returns them as rows, without creating TableObjects. The values of a row are in
+     * the order of {@link #select(Column...)}. The query must not contain prepared values.
+     *
+     * @return The rows
+     */
+    List<RowView> rows();
+
+    /**
+     * Counts the entries which match the where part without reading them
+     *
+     * @return The amount of entries
+     */
+    long count();
+
+    /**
+     * Sums the values of a column of the entries which match the where part
+     *
+     * @param column The column
+     * @return The sum as returned by the database or null if there are no entries
+     */
+    Number sum(Column column);
+
+    /**
+     * Gets the smallest value of a column of the entries which match the where part
+     *
+     * @param column The column
+     * @return The value as returned by the database or null if there are no entries
+     */
+    Object min(Column column);
+
+    /**
+     * Gets the greatest value of a column of the entries which match the where part
+     *
+     * @param column The column
+     * @return The value as returned by the database or null if there are no entries
+     */
+    Object max(Column column);
+
+    /**
+     * Gets the average of a column of the entries which match the where part
+     *
+     * @param column The column
+     * @return The average or null if there are no entries
+     */
+    Double avg(Column column);
+
+    /**
+     * Groups the entries which match the where part by a column, so the aggregates are calculated per group
+     *
+     * @param group The column to group by
+     * @return The grouped query
+     */
+    GroupedQuery<T> groupBy(Column group);
+
     SelectQuery<T> reset();
 
     PreparedSelectQuery<T> prepare();
+
+    /**
+     * Builds this query once into a immutable query which can be executed by many threads at the same time
+     *
+     * @return The compiled query
+     */
+    CompiledQuery<T> compile();
 }
@@ -0,0 +1,67 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 13.01.13 11:10
+ */
+
+package com.p000ison.dev.sqlapi.query;
+
+import com.p000ison.dev.sqlapi.Column;
+import com.p000ison.dev.sqlapi.TableObject;
+
+/**
+ * Sets columns of all entries of a table which match the where part with one statement, without loading them.
+ * <p/>
+ * The where part is built with {@link #where()}, afterwards the query is run with {@link #execute()}:
+ * <pre>
+ * UpdateQuery&lt;Player&gt; update = database.update(Player.class).set("coins", 0);
+ * update.where().greaterThan("coins", 1000);
+ * update.execute();
+ * </pre>
+ * A query without where part fails, unless {@link #all()} was called.
+ * Objects which were loaded before keep their old values. When they are saved, only the columns changed on them are
+ * written, so the updated columns keep their new values.
+ */
+public interface UpdateQuery<T extends TableObject> {
+
+    /**
+     * Sets the new value of a column
+     *
+     * @param column The column, must not be the id
+     * @param value  The new value
+     * @return This query
+     */
+    UpdateQuery<T> set(Column column, Object value);
+
+    UpdateQuery<T> set(String column, Object value);
+
+    WhereQuery<T> where();
+
+    /**
+     * Allows updating all entries of the table if there is no where part
+     *
+     * @return This query
+     */
+    UpdateQuery<T> all();
+
+    /**
+     * Updates the entries
+     *
+     * @return The amount of updated entries
+     * @throws com.p000ison.dev.sqlapi.exception.QueryException If there is no where part and {@link #all()} was not called
+     */
+    int execute();
+}
@@ -22,6 +22,8 @@ package com.p000ison.dev.sqlapi.query;
 import com.p000ison.dev.sqlapi.Column;
 import com.p000ison.dev.sqlapi.TableObject;
 
+import java.util.Collection;
+
 /**
  * The WHERE part of a query. Used in {@link SelectQuery}
  */
@@ -67,4 +69,27 @@ public interface WhereQuery<T extends TableObject> {
     WhereComparator<T> greaterThan(String column, Object expected);
 
     WhereComparator<T> preparedGreaterThan(String column);
+
+    /**
+     * Matches the entries whose value of the column is one of the expected values
+     *
+     * @param column   The column
+     * @param expected The expected values, must not be empty
+     * @return The comparator
+     */
+    WhereComparator<T> in(Column column, Collection<?> expected);
+
+    /**
+     * Matches the entries whose value of the column is one of the values which are set later. Every value is its own
+     * parameter.
+     *
+     * @param column The column
+     * @param amount The amount of values
+     * @return The comparator
+     */
+    WhereComparator<T> preparedIn(Column column, int amount);
+
+    WhereComparator<T> in(String column, Collection<?> expected);
+
+    WhereComparator<T> preparedIn(String column, int amount);
 }
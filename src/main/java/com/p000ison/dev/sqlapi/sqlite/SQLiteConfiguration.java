@@ -45,4 +45,24 @@ public final class SQLiteConfiguration extends DatabaseConfiguration {
         super.setProperty("location", location);
         return this;
     }
+
+    /**
+     * Sets the maximum amount of connections. SQLite allows only one writer at the same time, so more connections
+     * only help if you read a lot in parallel.
+     *
+     * @param size The size of the connection pool
+     * @return This configuration
+     */
+    public SQLiteConfiguration setPoolSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The pool size must be greater than 0!");
+        }
+        super.setProperty("poolSize", size);
+        return this;
+    }
+
+    public SQLiteConfiguration setIdleTimeout(long timeout) {
+        super.setProperty("idleTimeout", timeout);
+        return this;
+    }
 }
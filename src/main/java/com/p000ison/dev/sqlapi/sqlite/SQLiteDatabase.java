@@ -19,7 +19,9 @@
 
 package com.p000ison.dev.sqlapi.sqlite;
 
+import com.p000ison.dev.sqlapi.Column;
 import com.p000ison.dev.sqlapi.DatabaseConfiguration;
+import com.p000ison.dev.sqlapi.RegisteredTable;
 import com.p000ison.dev.sqlapi.TableBuilder;
 import com.p000ison.dev.sqlapi.TableObject;
 import com.p000ison.dev.sqlapi.exception.DatabaseConnectionException;
@@ -28,6 +30,7 @@ import org.sqlite.SQLiteDataSource;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 
 /**
  * Represents a SQLiteDatabase
@@ -58,6 +61,67 @@ public final class SQLiteDatabase extends JBDCDatabase {
         return new SQLiteTableBuilder(table, this);
     }
 
+    /**
+     * SQLite supports "ON CONFLICT ... DO UPDATE" only since 3.24, so we use "INSERT OR REPLACE". Since all columns are
+     * written this results in the same entry. Counters which should be kept are read from the old entry, so the
+     * parameters are numbered.
+     */
+    @Override
+    protected String buildUpsertQuery(RegisteredTable table, boolean keepCounters) {
+        StringBuilder query = new StringBuilder("INSERT OR REPLACE INTO ").append(table.getName()).append(" (");
+        List<Column> columns = table.getRegisteredColumns();
+
+        for (Column column : columns) {
+            query.append(column.getName()).append(',');
+        }
+        query.deleteCharAt(query.length() - 1);
+        query.append(") VALUES (");
+        Column id = table.getIDColumn();
+        int idParameter = columns.indexOf(id) + 1;
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            if (keepCounters && column.isCounter()) {
+                query.append("COALESCE((SELECT ").append(column.getName()).append(" FROM ").append(table.getName());
+                query.append(" WHERE ").append(id.getName()).append("=?").append(idParameter).append("),?").append(i + 1).append("),");
+            } else {
+                query.append('?').append(i + 1).append(',');
+            }
+        }
+        query.deleteCharAt(query.length() - 1);
+        query.append(");");
+
+        return query.toString();
+    }
+
+    /**
+     * Older versions of SQLite do not support multiple rows after VALUES, so the rows are combined with UNION ALL.
+     */
+    @Override
+    protected String buildInsertQuery(String table, String columns, int count, int rows) {
+        if (rows == 1) {
+            return super.buildInsertQuery(table, columns, count, rows);
+        }
+
+        StringBuilder query = new StringBuilder("INSERT INTO ").append(table).append(" (").append(columns).append(')');
+        for (int row = 0; row < rows; row++) {
+            query.append(row == 0 ? " SELECT " : " UNION ALL SELECT ");
+            for (int i = 0; i < count; i++) {
+                query.append(i == 0 ? "?" : ",?");
+            }
+        }
+        query.append(';');
+
+        return query.toString();
+    }
+
+    /**
+     * SQLite allows 999 parameters and 500 selects combined with UNION ALL by default
+     */
+    @Override
+    protected int getMaxInsertRows(int columns) {
+        return Math.max(1, Math.min(500, 999 / columns));
+    }
+
     @Override
     public SQLiteConfiguration getConfiguration() {
         return (SQLiteConfiguration) super.getConfiguration();
@@ -68,6 +132,26 @@ public final class SQLiteDatabase extends JBDCDatabase {
         return true;
     }
 
+    /**
+     * The SQLite driver only returns the key of the last row of a batch
+     *
+     * @return false
+     */
+    @Override
+    protected boolean isBatchGeneratedKeysSupported() {
+        return false;
+    }
+
+    /**
+     * The SQLite driver keeps the size of the last batch in the statement, so single executions fail afterwards
+     *
+     * @return false
+     */
+    @Override
+    protected boolean isBatchStatementReusable() {
+        return false;
+    }
+
     @Override
     public String getEngineName() {
         return "SQLite";
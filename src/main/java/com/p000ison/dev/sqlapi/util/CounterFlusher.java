@@ -0,0 +1,144 @@
+/*
+ * This file is part of SQLDatabaseAPI (2012).
+ *
+ * SQLDatabaseAPI is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SQLDatabaseAPI is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Last modified: 14.01.13 10:40
+ */
+
+package com.p000ison.dev.sqlapi.util;
+
+import com.p000ison.dev.sqlapi.Database;
+import com.p000ison.dev.sqlapi.exception.QueryException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Represents a CounterFlusher
+ * <p/>
+ * This thread writes the pending deltas of the counter columns of a database every flush interval, see
+ * {@link Database#increment(com.p000ison.dev.sqlapi.TableObject, String, long)}. The remaining deltas are written when
+ * the database gets closed or {@link #close()} is called.
+ */
+public class CounterFlusher extends Thread {
+    /**
+     * The time in milliseconds between two flushes
+     */
+    public static final long DEFAULT_FLUSH_INTERVAL = 5000L;
+
+    private final Database database;
+    private final long flushInterval;
+    private final Lock lock = new ReentrantLock();
+    private final Condition stopped = lock.newCondition();
+    private volatile boolean running = true;
+    private final Runnable closeHook = new Runnable() {
+        @Override
+        public void run() {
+            CounterFlusher.this.close();
+        }
+    };
+
+    /**
+     * Creates a new flusher
+     *
+     * @param flushInterval The time in milliseconds between two flushes
+     * @param database      The database
+     */
+    public CounterFlusher(long flushInterval, Database database) {
+        if (flushInterval < 1) {
+            throw new IllegalArgumentException("The flush interval must be greater than 0!");
+        }
+        this.flushInterval = flushInterval;
+        this.database = database;
+        setName("CounterFlusher");
+        database.addCloseHook(closeHook);
+    }
+
+    public CounterFlusher(Database database) {
+        this(DEFAULT_FLUSH_INTERVAL, database);
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            lock.lock();
+            try {
+                long nanos = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+                while (running && nanos > 0) {
+                    nanos = stopped.awaitNanos(nanos);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                database.flushCounters();
+            } catch (RuntimeException e) {
+                handleException(e);
+            }
+        }
+    }
+
+    /**
+     * Called if writing the deltas failed in this thread. By default the exception is passed to the uncaught exception
+     * handler, but the thread keeps running and the deltas are written with the next flush.
+     *
+     * @param e The exception
+     */
+    protected void handleException(RuntimeException e) {
+        getUncaughtExceptionHandler().uncaughtException(this, e);
+    }
+
+    /**
+     * Stops this thread after the remaining deltas are written
+     */
+    public void stopThread() {
+        lock.lock();
+        try {
+            running = false;
+            stopped.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops this thread and waits until the remaining deltas are written. This is done automatically when the database
+     * gets closed.
+     */
+    public void close() {
+        stopThread();
+        database.removeCloseHook(closeHook);
+
+        if (isAlive() && Thread.currentThread() != this) {
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new QueryException(e);
+            }
+        } else {
+            database.flushCounters();
+        }
+    }
+
+    protected Database getDatabase() {
+        return database;
+    }
+}
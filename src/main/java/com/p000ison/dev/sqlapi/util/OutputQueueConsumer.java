@@ -14,71 +14,310 @@
  * You should have received a copy of the GNU General Public License
  * along with SQLDatabaseAPI.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Last modified: 29.12.12 15:35
+ * Last modified: 03.01.13 12:25
  */
 
 package com.p000ison.dev.sqlapi.util;
 
 import com.p000ison.dev.sqlapi.Database;
 import com.p000ison.dev.sqlapi.TableObject;
+import com.p000ison.dev.sqlapi.exception.QueryException;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Represents a OutputQueueConsumer
  * <p/>
- * This Runnable can be used to store TableObject. In most usages you want another thread handle queries. This thread
- * will wait if there is nothing to save.
+ * This thread stores TableObjects in the background. If the same entry is added again before it was written only the
+ * latest state gets written. The pending objects are written in one transaction with the batch methods of the database
+ * once there are enough of them or the flush interval passed.
+ * <p/>
+ * If the queue is full adding waits until there is space again. The remaining objects are written when the database
+ * gets closed or {@link #close()} is called. Objects which could not be written stay in the queue and are written again
+ * with the next flush.
  */
 public class OutputQueueConsumer extends Thread {
-    private BlockingQueue<TableObject> queue = new LinkedBlockingQueue<TableObject>();
-    private int maxSize = -1;
+    /**
+     * The amount of pending objects which causes a flush
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    /**
+     * The maximal time in milliseconds a object waits before it gets written
+     */
+    public static final long DEFAULT_FLUSH_INTERVAL = 1000L;
+
     private final Database database;
-    private AtomicBoolean bool = new AtomicBoolean(true);
+    private final int maxSize;
+    private final int batchSize;
+    private final long flushInterval;
+    /**
+     * The pending objects mapped by their entry, so every entry is written once
+     */
+    private Map<Object, TableObject> pending = new LinkedHashMap<Object, TableObject>();
+    private final Lock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushNeeded = lock.newCondition();
+    /**
+     * Makes sure the batches are written in the order they were taken
+     */
+    private final Lock writeLock = new ReentrantLock();
+    private volatile boolean running = true;
+    private final Runnable closeHook = new Runnable() {
+        @Override
+        public void run() {
+            OutputQueueConsumer.this.close();
+        }
+    };
 
-    public OutputQueueConsumer(int maxSize, Database database) {
+    /**
+     * Creates a new consumer
+     *
+     * @param maxSize       The maximal amount of pending objects or -1 for no limit
+     * @param batchSize     The amount of pending objects which causes a flush
+     * @param flushInterval The maximal time in milliseconds a object waits before it gets written
+     * @param database      The database
+     */
+    public OutputQueueConsumer(int maxSize, int batchSize, long flushInterval, Database database) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be greater than 0!");
+        }
+        if (flushInterval < 1) {
+            throw new IllegalArgumentException("The flush interval must be greater than 0!");
+        }
         this.maxSize = maxSize;
+        this.batchSize = maxSize > 0 ? Math.min(batchSize, maxSize) : batchSize;
+        this.flushInterval = flushInterval;
         this.database = database;
+        setName("OutputQueueConsumer");
+        database.addCloseHook(closeHook);
+    }
+
+    public OutputQueueConsumer(int maxSize, Database database) {
+        this(maxSize, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL, database);
     }
 
     public OutputQueueConsumer(Database database) {
         this(-1, database);
     }
 
+    /**
+     * Adds a object which should be saved. Waits if the queue is full.
+     *
+     * @param tableObject The object
+     * @throws QueryException If the consumer is stopped or the thread got interrupted while waiting
+     */
     public void addTableObject(TableObject tableObject) {
-        synchronized (this) {
-            if (queue.size() >= maxSize) {
-                return;
+        enqueue(tableObject, -1);
+    }
+
+    /**
+     * Adds a object which should be saved. Waits at most the given time if the queue is full.
+     *
+     * @param tableObject The object
+     * @param timeout     The time to wait
+     * @param unit        The unit of the timeout
+     * @return Whether the object was added
+     * @throws QueryException If the consumer is stopped or the thread got interrupted while waiting
+     */
+    public boolean addTableObject(TableObject tableObject, long timeout, TimeUnit unit) {
+        return enqueue(tableObject, unit.toNanos(timeout));
+    }
+
+    private boolean enqueue(TableObject tableObject, long nanos) {
+        Object key = getKey(tableObject);
+
+        lock.lock();
+        try {
+            while (maxSize > 0 && pending.size() >= maxSize && !pending.containsKey(key)) {
+                if (!running) {
+                    break;
+                }
+
+                flushNeeded.signal();
+                if (nanos < 0) {
+                    notFull.await();
+                } else if (nanos == 0) {
+                    return false;
+                } else {
+                    nanos = notFull.awaitNanos(nanos);
+                }
             }
-            try {
-                queue.put(tableObject);
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
+
+            if (!running) {
+                throw new QueryException("The consumer is stopped!");
             }
+
+            pending.put(key, tableObject);
+
+            if (pending.size() >= batchSize) {
+                flushNeeded.signal();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the key of the entry of a object. New objects do not have a id yet, so they are identified by themselves.
+     */
+    private Object getKey(TableObject tableObject) {
+        Object id = database.getRegisteredTable(tableObject.getClass()).getIDColumn().getValue(tableObject);
+
+        if (id == null || ((Number) id).longValue() <= 0) {
+            return new IdentityKey(tableObject);
         }
+
+        return new EntryKey(tableObject.getClass(), ((Number) id).longValue());
     }
 
     @Override
     public void run() {
-        while (bool.get()) {
-            synchronized (this) {
-                TableObject obj;
-
-                try {
-                    while ((obj = queue.take()) != null) {
-                        database.save(obj);
-                    }
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
+        while (true) {
+            lock.lock();
+            try {
+                long nanos = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+                while (running && pending.size() < batchSize && nanos > 0) {
+                    nanos = flushNeeded.awaitNanos(nanos);
+                }
+
+                if (!running && pending.isEmpty()) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                handleException(e);
+
+                if (!running) {
+                    //the remaining objects stay pending and can be written with flush()
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes all pending objects now. If writing fails the objects are added again, unless a newer state of the same
+     * entry was added meanwhile, so they are written with the next flush.
+     *
+     * @throws QueryException If writing failed
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            Map<Object, TableObject> objects;
+
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
                 }
+
+                objects = pending;
+                pending = new LinkedHashMap<Object, TableObject>();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
             }
+
+            try {
+                write(new ArrayList<TableObject>(objects.values()));
+            } catch (RuntimeException e) {
+                restore(objects);
+                throw e;
+            } catch (Error e) {
+                restore(objects);
+                throw e;
+            }
+        } finally {
+            writeLock.unlock();
         }
     }
 
+    /**
+     * Adds objects which could not be written again. Objects which were added meanwhile are newer, so they are kept.
+     *
+     * @param objects The objects mapped by their keys
+     */
+    private void restore(Map<Object, TableObject> objects) {
+        lock.lock();
+        try {
+            Map<Object, TableObject> restored = new LinkedHashMap<Object, TableObject>(objects);
+            restored.putAll(pending);
+            pending = restored;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a batch of objects
+     *
+     * @param objects The objects
+     */
+    protected void write(Collection<TableObject> objects) {
+        database.saveAll(objects);
+    }
+
+    /**
+     * Called if writing a batch failed in this thread. By default the exception is passed to the uncaught exception
+     * handler, but the thread keeps running and the objects are written again with the next flush.
+     *
+     * @param e The exception
+     */
+    protected void handleException(RuntimeException e) {
+        getUncaughtExceptionHandler().uncaughtException(this, e);
+    }
+
+    /**
+     * Stops this thread after the remaining objects are written. No objects can be added anymore.
+     */
     public void stopThread() {
-        bool.set(false);
+        lock.lock();
+        try {
+            running = false;
+            flushNeeded.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops this thread and waits until all remaining objects are written. This is done automatically when the
+     * database gets closed.
+     */
+    public void close() {
+        stopThread();
+        database.removeCloseHook(closeHook);
+
+        if (isAlive() && Thread.currentThread() != this) {
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new QueryException(e);
+            }
+        } else {
+            flush();
+        }
     }
 
     protected Database getDatabase() {
@@ -86,6 +325,54 @@ public class OutputQueueConsumer extends Thread {
     }
 
     public int size() {
-        return queue.size();
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class EntryKey {
+        private final Class<?> table;
+        private final long id;
+
+        private EntryKey(Class<?> table, long id) {
+            this.table = table;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            EntryKey that = (EntryKey) o;
+
+            return id == that.id && table.equals(that.table);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * table.hashCode() + (int) (id ^ (id >>> 32));
+        }
+    }
+
+    private static final class IdentityKey {
+        private final TableObject tableObject;
+
+        private IdentityKey(TableObject tableObject) {
+            this.tableObject = tableObject;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey && ((IdentityKey) o).tableObject == tableObject;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(tableObject);
+        }
     }
 }